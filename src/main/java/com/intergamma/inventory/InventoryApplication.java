@@ -5,13 +5,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Optional;
 
 @EnableCaching
+@EnableScheduling
 @SpringBootApplication
 public class InventoryApplication {
 
@@ -19,9 +22,15 @@ public class InventoryApplication {
 
     public static void main(String[] args) {
         SpringApplication application = new SpringApplication(InventoryApplication.class);
-        ConfigurableEnvironment runningEnvironment = application.run(args).getEnvironment();
+        ConfigurableApplicationContext context = application.run(args);
+        ConfigurableEnvironment runningEnvironment = context.getEnvironment();
 
         loggingApplicationStartup(runningEnvironment);
+
+        // used by the class data sharing training run, see the 'cds' Maven profile
+        if (runningEnvironment.getProperty("intergamma.startup.exit-after-ready", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
     private static void loggingApplicationStartup(final ConfigurableEnvironment runningEnvironment) {
@@ -0,0 +1,135 @@
+package com.intergamma.inventory.config;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controls one Flight Recorder recording on {@code /actuator/jfr}, including the inventory events of
+ * {@code com.intergamma.inventory.jfr}: a POST starts it, optionally with a {@code duration} in seconds and the
+ * {@code settings} {@code default} or {@code profile}, a DELETE stops it and {@code GET /actuator/jfr/recording}
+ * downloads it, also while it runs. Recordings are bounded by {@code intergamma.jfr.max-duration-seconds} and
+ * {@code max-size-mb}.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+
+    private final Logger log = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+
+    @Value("${intergamma.jfr.max-duration-seconds}")
+    private long maxDurationSeconds;
+
+    @Value("${intergamma.jfr.max-size-mb}")
+    private long maxSizeMb;
+
+    private Recording recording;
+    private Path dump;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("state", recording != null ? recording.getState() : RecordingState.NEW);
+        if (recording != null) {
+            result.put("name", recording.getName());
+            result.put("startTime", recording.getStartTime());
+            result.put("stopTime", recording.getStopTime());
+            result.put("duration", recording.getDuration());
+            result.put("size", recording.getSize());
+        }
+        result.put("maxDurationSeconds", maxDurationSeconds);
+        result.put("maxSizeMb", maxSizeMb);
+        return result;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable final Long duration, @Nullable final String settings) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A recording is already running, stop it first");
+        }
+        close();
+
+        long seconds = duration != null ? Math.min(duration, maxDurationSeconds) : maxDurationSeconds;
+        recording = new Recording(Configuration.getConfiguration(settings != null ? settings : "profile"));
+        recording.setName("inventory-" + System.currentTimeMillis());
+        recording.setToDisk(true);
+        recording.setDuration(Duration.ofSeconds(seconds));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.start();
+        log.info("Started Flight Recorder recording {} for {} seconds", recording.getName(), seconds);
+        return status();
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Stopped Flight Recorder recording {}", recording.getName());
+        }
+        return status();
+    }
+
+    /**
+     * Dumps the data recorded so far to a temporary file, which replaces the file of the previous download.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download(@Selector final String name) {
+        if (recording == null || !"recording".equals(name)
+                        || recording.getState() != RecordingState.RUNNING && recording.getState() != RecordingState.STOPPED) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try {
+            deleteDump();
+            dump = Files.createTempFile(recording.getName(), ".jfr");
+            recording.dump(dump);
+            return new WebEndpointResponse<>(new FileSystemResource(dump));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        deleteDump();
+    }
+
+    private void deleteDump() {
+        if (dump != null) {
+            try {
+                Files.deleteIfExists(dump);
+            }
+            catch (IOException e) {
+                log.warn("Could not delete recording dump {}: {}", dump, e.getMessage());
+            }
+            dump = null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.intergamma.inventory.config;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the Hibernate statistics on {@code /actuator/hibernate}, including the queries slower than the configured threshold.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final Statistics statistics;
+
+    @Value("${intergamma.hibernate.slow-query-threshold-ms}")
+    private long slowQueryThresholdMs;
+
+    public HibernateStatisticsEndpoint(final EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("startTime", statistics.getStartTime());
+        result.put("prepareStatementCount", statistics.getPrepareStatementCount());
+        result.put("queryExecutionCount", statistics.getQueryExecutionCount());
+        result.put("queryExecutionMaxTime", statistics.getQueryExecutionMaxTime());
+        result.put("queryExecutionMaxTimeQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        result.put("entityLoadCount", statistics.getEntityLoadCount());
+        result.put("entityFetchCount", statistics.getEntityFetchCount());
+        result.put("entityInsertCount", statistics.getEntityInsertCount());
+        result.put("entityUpdateCount", statistics.getEntityUpdateCount());
+        result.put("entityDeleteCount", statistics.getEntityDeleteCount());
+        result.put("collectionFetchCount", statistics.getCollectionFetchCount());
+        result.put("transactionCount", statistics.getTransactionCount());
+        result.put("slowQueryThresholdMs", slowQueryThresholdMs);
+        result.put("slowQueries", slowQueries());
+
+        return result;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        statistics.clear();
+    }
+
+    private List<Map<String, Object>> slowQueries() {
+        List<Map<String, Object>> slowQueries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            if (queryStatistics.getExecutionMaxTime() < slowQueryThresholdMs) {
+                continue;
+            }
+            Map<String, Object> slowQuery = new LinkedHashMap<>();
+            slowQuery.put("query", query);
+            slowQuery.put("executionCount", queryStatistics.getExecutionCount());
+            slowQuery.put("executionAvgTime", queryStatistics.getExecutionAvgTime());
+            slowQuery.put("executionMaxTime", queryStatistics.getExecutionMaxTime());
+            slowQuery.put("executionRowCount", queryStatistics.getExecutionRowCount());
+            slowQueries.add(slowQuery);
+        }
+        slowQueries.sort((q1, q2) -> Long.compare((Long) q2.get("executionMaxTime"), (Long) q1.get("executionMaxTime")));
+
+        return slowQueries;
+    }
+}
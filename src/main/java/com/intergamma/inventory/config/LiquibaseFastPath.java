@@ -0,0 +1,119 @@
+package com.intergamma.inventory.config;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Skips Liquibase entirely when the checksum of all changelog resources matches the checksum stored after the last
+ * successful update, so a start against a current schema doesn't parse the changelogs at all.
+ */
+@Component
+@ConditionalOnProperty(name = "intergamma.liquibase.fast-path", havingValue = "true")
+public class LiquibaseFastPath implements BeanPostProcessor {
+
+    private final Logger log = LoggerFactory.getLogger(LiquibaseFastPath.class);
+
+    private static final String CHANGELOG_RESOURCES = "classpath*:liquibase/**/*.*";
+    private static final String CHECKSUM_TABLE = "inventory_schema_checksum";
+
+    private String checksum;
+    private boolean skipped;
+
+    @Override
+    public Object postProcessBeforeInitialization(final Object bean, final String beanName) throws BeansException {
+        if (!(bean instanceof SpringLiquibase)) {
+            return bean;
+        }
+        SpringLiquibase liquibase = (SpringLiquibase) bean;
+        checksum = checksum(liquibase);
+        String storedChecksum = storedChecksum(new JdbcTemplate(liquibase.getDataSource()));
+        if (checksum.equals(storedChecksum)) {
+            log.info("Liquibase changelogs unchanged since the last update (checksum {}), skipping Liquibase", checksum);
+            liquibase.setShouldRun(false);
+            skipped = true;
+        }
+
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) throws BeansException {
+        if (bean instanceof SpringLiquibase && !skipped && checksum != null) {
+            storeChecksum(new JdbcTemplate(((SpringLiquibase) bean).getDataSource()), checksum);
+        }
+
+        return bean;
+    }
+
+    private String storedChecksum(final JdbcTemplate jdbcTemplate) {
+        try {
+            List<String> checksums = jdbcTemplate.queryForList("SELECT checksum FROM " + CHECKSUM_TABLE + " WHERE id = 1", String.class);
+            return checksums.isEmpty() ? null : checksums.get(0);
+        }
+        catch (DataAccessException e) {
+            log.debug("No stored Liquibase checksum available", e);
+            return null;
+        }
+    }
+
+    private void storeChecksum(final JdbcTemplate jdbcTemplate, final String checksum) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + CHECKSUM_TABLE
+                        + " (id integer PRIMARY KEY, checksum varchar(64) NOT NULL, updated_at timestamp NOT NULL)");
+        jdbcTemplate.update("INSERT INTO " + CHECKSUM_TABLE + " (id, checksum, updated_at) VALUES (1, ?, now()) "
+                        + "ON CONFLICT (id) DO UPDATE SET checksum = excluded.checksum, updated_at = excluded.updated_at", checksum);
+    }
+
+    private static String checksum(final SpringLiquibase liquibase) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(liquibase.getChangeLog()).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.valueOf(liquibase.getContexts()).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.valueOf(liquibase.getLabels()).getBytes(StandardCharsets.UTF_8));
+
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(CHANGELOG_RESOURCES);
+            Arrays.sort(resources, Comparator.comparing(r -> Objects.toString(r.getFilename(), "") + r.getDescription()));
+            byte[] buffer = new byte[8192];
+            for (Resource resource : resources) {
+                digest.update(String.valueOf(resource.getFilename()).getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = resource.getInputStream()) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.intergamma.inventory.config;
+
+import com.intergamma.inventory.service.ProductCodeFilter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the size, fill and observed false positive rate of the product code filter on {@code /actuator/productCodes},
+ * and rebuilds it on a POST.
+ */
+@Component
+@Endpoint(id = "productCodes")
+public class ProductCodeFilterEndpoint {
+
+    private final ProductCodeFilter productCodeFilter;
+
+    public ProductCodeFilterEndpoint(final ProductCodeFilter productCodeFilter) {
+        this.productCodeFilter = productCodeFilter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return productCodeFilter.statistics();
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        productCodeFilter.rebuild();
+        return productCodeFilter.statistics();
+    }
+}
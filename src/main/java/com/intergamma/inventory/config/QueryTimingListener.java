@@ -0,0 +1,47 @@
+package com.intergamma.inventory.config;
+
+import com.intergamma.inventory.jfr.DatabaseQueryEvent;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records the time spent executing JDBC statements in the {@link RequestTiming} of the current thread, and as a
+ * {@link DatabaseQueryEvent} for Flight Recorder. Registered on the datasource-proxy around the {@code dataSource}, so
+ * it covers the statements of the repositories as well as those of {@code JdbcTemplate}; the time to read the rows of a
+ * result set beyond the first fetch isn't included.
+ */
+public class QueryTimingListener implements QueryExecutionListener {
+
+    private static final String START = "timing.start";
+    private static final String EVENT = "timing.event";
+
+    @Override
+    public void beforeQuery(final ExecutionInfo execution, final List<QueryInfo> queries) {
+        DatabaseQueryEvent event = new DatabaseQueryEvent();
+        event.begin();
+        execution.addCustomValue(EVENT, event);
+        execution.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(final ExecutionInfo execution, final List<QueryInfo> queries) {
+        Long start = execution.getCustomValue(START, Long.class);
+        if (start != null) {
+            RequestTiming.database(start);
+        }
+        DatabaseQueryEvent event = execution.getCustomValue(EVENT, DatabaseQueryEvent.class);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sql = queries.stream().map(QueryInfo::getQuery).collect(Collectors.joining(";\n"));
+            event.method = execution.getMethod().getName();
+            event.commit();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.intergamma.inventory.config;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,14 +11,19 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.StringUtils;
 
 import java.time.Duration;
 
@@ -33,18 +41,52 @@ public class RedisConfig {
     @Value("${spring.redis.ttl}")
     private int ttl;
 
+    @Value("${spring.redis.cluster.nodes:}")
+    private String clusterNodes;
+
+    @Value("${intergamma.reservation.redis.connect-timeout-ms}")
+    private long connectTimeoutMs;
+
+    @Value("${intergamma.reservation.redis.command-timeout-ms}")
+    private long commandTimeoutMs;
+
+    /**
+     * Commands time out after {@code command-timeout-ms} and are rejected right away while disconnected, instead of
+     * being queued until the connection is back, so a stalled Redis trips the reservation circuit breaker quickly.
+     */
     @Bean
     public LettuceConnectionFactory redisConnectionFactory() {
-        RedisStandaloneConfiguration redisStandaloneConfiguration = new RedisStandaloneConfiguration();
-        redisStandaloneConfiguration.setHostName(redisHost);
-        redisStandaloneConfiguration.setPort(redisPort);
-
-        return new LettuceConnectionFactory(redisStandaloneConfiguration);
+        SocketOptions socketOptions = SocketOptions.builder()
+                        .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                        .build();
+        if (isCluster()) {
+            log.info("Configuring Redis cluster connection to {}", clusterNodes);
+            return new LettuceConnectionFactory(clusterConfiguration(), lettuceClientConfiguration(ClusterClientOptions.builder()
+                            .socketOptions(socketOptions)
+                            .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                            .build()));
+        }
+        return new LettuceConnectionFactory(standaloneConfiguration(), lettuceClientConfiguration(ClientOptions.builder()
+                        .socketOptions(socketOptions)
+                        .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                        .build()));
     }
 
     @Bean
     JedisConnectionFactory jedisConnectionFactory() {
-        return new JedisConnectionFactory();
+        JedisClientConfiguration clientConfiguration = JedisClientConfiguration.builder()
+                        .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                        .readTimeout(Duration.ofMillis(commandTimeoutMs))
+                        .build();
+        if (isCluster()) {
+            return new JedisConnectionFactory(clusterConfiguration(), clientConfiguration);
+        }
+        return new JedisConnectionFactory(standaloneConfiguration(), clientConfiguration);
+    }
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return new TimedStringRedisTemplate(redisConnectionFactory);
     }
 
     @Bean
@@ -80,6 +122,28 @@ public class RedisConfig {
         return redisCacheManager;
     }
 
+    private LettuceClientConfiguration lettuceClientConfiguration(final ClientOptions clientOptions) {
+        return LettuceClientConfiguration.builder()
+                        .commandTimeout(Duration.ofMillis(commandTimeoutMs))
+                        .clientOptions(clientOptions)
+                        .build();
+    }
+
+    private boolean isCluster() {
+        return StringUtils.hasText(clusterNodes);
+    }
+
+    private RedisClusterConfiguration clusterConfiguration() {
+        return new RedisClusterConfiguration(StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(clusterNodes)));
+    }
+
+    private RedisStandaloneConfiguration standaloneConfiguration() {
+        RedisStandaloneConfiguration redisStandaloneConfiguration = new RedisStandaloneConfiguration();
+        redisStandaloneConfiguration.setHostName(redisHost);
+        redisStandaloneConfiguration.setPort(redisPort);
+        return redisStandaloneConfiguration;
+    }
+
     private static RedisCacheConfiguration createCacheConfiguration(long timeoutInSeconds) {
         return RedisCacheConfiguration.defaultCacheConfig()
                         .entryTtl(Duration.ofSeconds(timeoutInSeconds));
@@ -0,0 +1,79 @@
+package com.intergamma.inventory.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source with one routing read-only transactions to the Postgres replicas, once
+ * at least one replica is configured under {@code intergamma.datasource.replicas}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "intergamma.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+                    final DataSourceProperties dataSourceProperties,
+                    final ReplicaDataSourceProperties replicaProperties,
+                    final Environment environment,
+                    final TaskScheduler taskScheduler,
+                    final MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaProperties.getReplicas().size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = replicaProperties.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername());
+            dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword());
+            dataSource.setMaximumPoolSize(primary.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            replicas.put(dataSource.getPoolName(), dataSource);
+        }
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getMaxReplicaLagMs());
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.checkReplicaLag();
+        taskScheduler.scheduleWithFixedDelay(routingDataSource::checkReplicaLag, Duration.ofMillis(replicaProperties.getLagCheckIntervalMs()));
+
+        for (String replica : replicas.keySet()) {
+            Gauge.builder("inventory.datasource.replica.lag", routingDataSource, ds -> ds.getReplicaLagMs().getOrDefault(replica, -1L))
+                            .description("Replication lag of a read replica in milliseconds, -1 when unreachable")
+                            .tag("replica", replica)
+                            .register(meterRegistry);
+        }
+        Gauge.builder("inventory.datasource.replicas.healthy", routingDataSource, ds -> ds.getHealthyReplicas().size())
+                        .description("Number of replicas within the lag tolerance that serve read-only transactions")
+                        .register(meterRegistry);
+
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(final ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,74 @@
+package com.intergamma.inventory.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas under {@code intergamma.datasource}, used for read-only transactions.
+ */
+@ConfigurationProperties(prefix = "intergamma.datasource")
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    private long maxReplicaLagMs = 5000;
+
+    private long lagCheckIntervalMs = 1000;
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(final List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public long getMaxReplicaLagMs() {
+        return maxReplicaLagMs;
+    }
+
+    public void setMaxReplicaLagMs(final long maxReplicaLagMs) {
+        this.maxReplicaLagMs = maxReplicaLagMs;
+    }
+
+    public long getLagCheckIntervalMs() {
+        return lagCheckIntervalMs;
+    }
+
+    public void setLagCheckIntervalMs(final long lagCheckIntervalMs) {
+        this.lagCheckIntervalMs = lagCheckIntervalMs;
+    }
+
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(final String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(final String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(final String password) {
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.intergamma.inventory.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only transactions round-robin to the replicas whose replication lag is within the tolerance, and
+ * everything else to the primary. When no replica is healthy, reads fall back to the primary.
+ * <p>
+ * The routing decision is taken when a connection is requested, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager asks for the
+ * connection before the read-only flag of the transaction is set.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    /**
+     * A replica that replayed everything it received is caught up, but only while its WAL receiver is connected to
+     * the primary: without one, it receives nothing and the time since its last replayed transaction is its lag. The
+     * pid of the receiver is visible without the pg_read_all_stats role.
+     */
+    private static final String LAG_QUERY = "SELECT CASE"
+                    + " WHEN NOT pg_is_in_recovery() THEN 0"
+                    + " WHEN EXISTS (SELECT 1 FROM pg_stat_wal_receiver) AND pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+                    + " ELSE (extract(epoch FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint END";
+
+    private final HikariDataSource primary;
+    private final Map<String, HikariDataSource> replicas;
+    private final long maxReplicaLagMs;
+
+    private final Map<String, Long> replicaLagMs = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> healthyReplicas = Collections.emptyList();
+
+    public ReplicaRoutingDataSource(final HikariDataSource primary, final Map<String, HikariDataSource> replicas, final long maxReplicaLagMs) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxReplicaLagMs = maxReplicaLagMs;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    /**
+     * Measures the replication lag of every replica and updates the replicas used for reads. A replica that can't
+     * be reached, or that is disconnected from the primary, counts as lagging.
+     */
+    public void checkReplicaLag() {
+        List<String> healthy = new ArrayList<>();
+        for (Map.Entry<String, HikariDataSource> replica : replicas.entrySet()) {
+            long lag = lagOf(replica.getValue());
+            replicaLagMs.put(replica.getKey(), lag);
+            if (lag >= 0 && lag <= maxReplicaLagMs) {
+                healthy.add(replica.getKey());
+            }
+        }
+
+        if (!healthy.equals(healthyReplicas)) {
+            log.info("Routing read-only transactions to {}", healthy.isEmpty() ? "the primary, no replica is within " + maxReplicaLagMs + " ms" : healthy);
+        }
+        healthyReplicas = Collections.unmodifiableList(healthy);
+    }
+
+    /**
+     * @return the last measured lag per replica in milliseconds, -1 for a replica that could not be reached
+     */
+    public Map<String, Long> getReplicaLagMs() {
+        return replicaLagMs;
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    @Override
+    public void close() {
+        replicas.values().forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    private long lagOf(final HikariDataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+            resultSet.next();
+            long lag = resultSet.getLong(1);
+            return resultSet.wasNull() ? -1 : lag;
+        }
+        catch (SQLException e) {
+            log.warn("Replica {} is unavailable: {}", replica.getPoolName(), e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.intergamma.inventory.config;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the time the current thread spends in JDBC statements, Redis commands and response serialization while
+ * handling a request, for the {@code Server-Timing} header. The accumulators are one array per thread, reset and
+ * reused for every request, so recording a call doesn't allocate. Work done on other threads, such as the batched
+ * product loads or the cluster scan fan-out, is only counted for the time the request thread waits on it.
+ */
+public final class RequestTiming {
+
+    private static final int START = 0;
+    private static final int DB = 1;
+    private static final int DB_COUNT = 2;
+    private static final int REDIS = 3;
+    private static final int REDIS_COUNT = 4;
+    private static final int SERIALIZATION = 5;
+
+    private static final ThreadLocal<long[]> TIMINGS = ThreadLocal.withInitial(() -> new long[6]);
+
+    private RequestTiming() {
+    }
+
+    public static void start() {
+        long[] timings = TIMINGS.get();
+        Arrays.fill(timings, 0);
+        timings[START] = System.nanoTime();
+    }
+
+    public static void database(final long startNanos) {
+        record(DB, DB_COUNT, startNanos);
+    }
+
+    public static void redis(final long startNanos) {
+        record(REDIS, REDIS_COUNT, startNanos);
+    }
+
+    public static void serialization(final long startNanos) {
+        TIMINGS.get()[SERIALIZATION] += System.nanoTime() - startNanos;
+    }
+
+    public static long totalNanos() {
+        return System.nanoTime() - TIMINGS.get()[START];
+    }
+
+    public static long databaseNanos() {
+        return TIMINGS.get()[DB];
+    }
+
+    public static long databaseCount() {
+        return TIMINGS.get()[DB_COUNT];
+    }
+
+    public static long redisNanos() {
+        return TIMINGS.get()[REDIS];
+    }
+
+    public static long redisCount() {
+        return TIMINGS.get()[REDIS_COUNT];
+    }
+
+    public static long serializationNanos() {
+        return TIMINGS.get()[SERIALIZATION];
+    }
+
+    private static void record(final int time, final int count, final long startNanos) {
+        long[] timings = TIMINGS.get();
+        timings[time] += System.nanoTime() - startNanos;
+        timings[count]++;
+    }
+}
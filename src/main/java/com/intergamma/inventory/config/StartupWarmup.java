@@ -0,0 +1,94 @@
+package com.intergamma.inventory.config;
+
+import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.repository.ProductRepository;
+import com.intergamma.inventory.service.ProductLoader;
+import com.intergamma.inventory.service.ProductRepresentationCache;
+import com.intergamma.inventory.service.ReservationStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms up the catalog and reservation paths before the application reports itself ready, and measures the time
+ * from JVM start to ready.
+ * <p>
+ * Application runners complete before the {@link ApplicationReadyEvent} and the readiness state change to
+ * accepting traffic, so the readiness probe only turns green once the warm-up has finished.
+ */
+@Component
+@Lazy(false)
+public class StartupWarmup implements ApplicationRunner {
+
+    private final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final ProductRepository productRepository;
+    private final ProductLoader productLoader;
+    private final ProductRepresentationCache productRepresentationCache;
+    private final ReservationStore reservationStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${intergamma.startup.warmup}")
+    private boolean warmup;
+
+    @Value("${intergamma.startup.warmup-products}")
+    private int warmupProducts;
+
+    public StartupWarmup(
+                    final ProductRepository productRepository,
+                    final ProductLoader productLoader,
+                    final ProductRepresentationCache productRepresentationCache,
+                    final ReservationStore reservationStore,
+                    final MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.productLoader = productLoader;
+        this.productRepresentationCache = productRepresentationCache;
+        this.reservationStore = reservationStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (!warmup) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<Product> products = productRepository.findAll(PageRequest.of(0, warmupProducts, Sort.by("id"))).getContent();
+            for (Product product : products) {
+                productRepresentationCache.getProduct(product.getId(), () -> productLoader.load(product.getId()));
+            }
+            if (!products.isEmpty()) {
+                reservationStore.findBySupplierAndProduct(0L, products.get(0).getId());
+            }
+            log.info("Warmed up {} products and the reservation store in {} ms", products.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        catch (RuntimeException e) {
+            log.warn("Warm-up failed, continuing startup: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportTimeToReady() {
+        long timeToReadyMs = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        TimeGauge.builder("inventory.startup.time-to-ready", () -> timeToReadyMs, TimeUnit.MILLISECONDS)
+                        .description("Time from JVM start until the application is ready to serve traffic")
+                        .register(meterRegistry);
+        log.info("Application ready {} ms after JVM start", timeToReadyMs);
+    }
+}
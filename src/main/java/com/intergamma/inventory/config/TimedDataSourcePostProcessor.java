@@ -0,0 +1,26 @@
+package com.intergamma.inventory.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the primary {@code dataSource}, the auto-configured pool as well as the replica routing one, in a
+ * datasource-proxy that times every statement execution with the {@link QueryTimingListener}.
+ */
+@Component
+public class TimedDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if ("dataSource".equals(beanName) && bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                            .listener(new QueryTimingListener())
+                            .build();
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,66 @@
+package com.intergamma.inventory.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson converter recording the time spent serializing a response body, tagged by the matched endpoint, and adding
+ * it to the {@link RequestTiming} of the request.
+ */
+public class TimedMappingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final String SERIALIZATION_TIMER = "inventory.http.serialization";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    /** Registered on the first response of an endpoint, the set of endpoint patterns is fixed. */
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public TimedMappingJackson2HttpMessageConverter(final ObjectMapper objectMapper, final ObjectProvider<MeterRegistry> meterRegistry) {
+        super(objectMapper);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void writeInternal(final Object object, final Type type, final HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        }
+        finally {
+            RequestTiming.serialization(start);
+            if (registry != null) {
+                timers.computeIfAbsent(currentEndpoint(), uri -> Timer.builder(SERIALIZATION_TIMER)
+                                                .description("Time spent serializing response bodies to JSON")
+                                                .tag("uri", uri)
+                                                .publishPercentileHistogram()
+                                                .register(registry))
+                                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return "UNKNOWN";
+        }
+        Object pattern = attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
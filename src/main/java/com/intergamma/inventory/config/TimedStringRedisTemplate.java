@@ -0,0 +1,27 @@
+package com.intergamma.inventory.config;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Records the time spent in Redis commands, scripts included, in the {@link RequestTiming} of the current thread.
+ * All operations of the template go through {@link #execute(RedisCallback, boolean, boolean)}.
+ */
+public class TimedStringRedisTemplate extends StringRedisTemplate {
+
+    public TimedStringRedisTemplate(final RedisConnectionFactory connectionFactory) {
+        super(connectionFactory);
+    }
+
+    @Override
+    public <T> T execute(final RedisCallback<T> action, final boolean exposeConnection, final boolean pipeline) {
+        long start = System.nanoTime();
+        try {
+            return super.execute(action, exposeConnection, pipeline);
+        }
+        finally {
+            RequestTiming.redis(start);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.intergamma.inventory.domain;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The catalog changes since a sync token: changed products, suppliers and categories, the ids of deleted ones, and the
+ * token to pass on the next sync. With {@code hasMore}, the next sync returns the next page right away.
+ */
+public class CatalogChanges implements Serializable {
+
+    private List<Product> products;
+    private List<Long> deletedProductIds;
+    private List<Supplier> suppliers;
+    private List<Long> deletedSupplierIds;
+    private List<Category> categories;
+    private List<Long> deletedCategoryIds;
+    private String token;
+    private boolean hasMore;
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(final List<Product> products) {
+        this.products = products;
+    }
+
+    public List<Long> getDeletedProductIds() {
+        return deletedProductIds;
+    }
+
+    public void setDeletedProductIds(final List<Long> deletedProductIds) {
+        this.deletedProductIds = deletedProductIds;
+    }
+
+    public List<Supplier> getSuppliers() {
+        return suppliers;
+    }
+
+    public void setSuppliers(final List<Supplier> suppliers) {
+        this.suppliers = suppliers;
+    }
+
+    public List<Long> getDeletedSupplierIds() {
+        return deletedSupplierIds;
+    }
+
+    public void setDeletedSupplierIds(final List<Long> deletedSupplierIds) {
+        this.deletedSupplierIds = deletedSupplierIds;
+    }
+
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(final List<Category> categories) {
+        this.categories = categories;
+    }
+
+    public List<Long> getDeletedCategoryIds() {
+        return deletedCategoryIds;
+    }
+
+    public void setDeletedCategoryIds(final List<Long> deletedCategoryIds) {
+        this.deletedCategoryIds = deletedCategoryIds;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(final String token) {
+        this.token = token;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(final boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,90 @@
+package com.intergamma.inventory.domain;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class ImportReport implements Serializable {
+
+    private String entity;
+    private long received;
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private List<RejectedRow> rejectedRows;
+    private long durationMs;
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(final String entity) {
+        this.entity = entity;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(final long received) {
+        this.received = received;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(final long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(final long updated) {
+        this.updated = updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(final long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<RejectedRow> getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(final List<RejectedRow> rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(final long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public static class RejectedRow implements Serializable {
+
+        private final long row;
+        private final String reason;
+
+        public RejectedRow(final long row, final String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
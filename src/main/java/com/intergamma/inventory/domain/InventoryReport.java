@@ -0,0 +1,117 @@
+package com.intergamma.inventory.domain;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public class InventoryReport implements Serializable {
+
+    private Instant generatedAt;
+    private int lowStockThreshold;
+    private StockGroup total;
+    private List<StockGroup> suppliers;
+    private List<StockGroup> categories;
+
+    public Instant getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(final Instant generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public void setLowStockThreshold(final int lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public StockGroup getTotal() {
+        return total;
+    }
+
+    public void setTotal(final StockGroup total) {
+        this.total = total;
+    }
+
+    public List<StockGroup> getSuppliers() {
+        return suppliers;
+    }
+
+    public void setSuppliers(final List<StockGroup> suppliers) {
+        this.suppliers = suppliers;
+    }
+
+    public List<StockGroup> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(final List<StockGroup> categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Stock aggregates of the products of one supplier or category, or of the whole catalog. Products without a
+     * supplier or category are grouped under a {@code null} id.
+     */
+    public static class StockGroup implements Serializable {
+
+        private final Long id;
+        private final String name;
+        private final long products;
+        private final long quantity;
+        private final BigDecimal stockValue;
+        private final long lowStockProducts;
+        private final long reserved;
+
+        public StockGroup(final Long id, final String name, final long products, final long quantity, final BigDecimal stockValue,
+                          final long lowStockProducts, final long reserved) {
+            this.id = id;
+            this.name = name;
+            this.products = products;
+            this.quantity = quantity;
+            this.stockValue = stockValue;
+            this.lowStockProducts = lowStockProducts;
+            this.reserved = reserved;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getProducts() {
+            return products;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getStockValue() {
+            return stockValue;
+        }
+
+        public long getLowStockProducts() {
+            return lowStockProducts;
+        }
+
+        public long getReserved() {
+            return reserved;
+        }
+
+        public long getAvailable() {
+            return quantity - reserved;
+        }
+
+        public double getReservedRatio() {
+            return quantity > 0 ? (double) reserved / quantity : 0;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.intergamma.inventory.domain;
+
+import java.io.Serializable;
+
+public class LowStockItem implements Serializable {
+
+    private Long productId;
+    private long quantity;
+    private long reserved;
+    private int threshold;
+    private long since;
+
+    public LowStockItem() {
+    }
+
+    public LowStockItem(final Long productId, final long quantity, final long reserved, final int threshold, final long since) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.reserved = reserved;
+        this.threshold = threshold;
+        this.since = since;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(final Long productId) {
+        this.productId = productId;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(final long quantity) {
+        this.quantity = quantity;
+    }
+
+    public long getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(final long reserved) {
+        this.reserved = reserved;
+    }
+
+    public long getAvailable() {
+        return quantity - reserved;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(final int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return epoch millis at which the product was first detected as low stock
+     */
+    public long getSince() {
+        return since;
+    }
+
+    public void setSince(final long since) {
+        this.since = since;
+    }
+}
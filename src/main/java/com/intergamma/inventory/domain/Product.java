@@ -1,11 +1,19 @@
 package com.intergamma.inventory.domain;
 
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.Where;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
 
+/**
+ * Deleting a product leaves a tombstone for the delta sync, see {@code add_catalog_change_tracking_v1}.
+ */
 @Entity
 @Table(name = "product")
+@SQLDelete(sql = "UPDATE product SET deleted_at = now() WHERE id = ? AND deleted_at IS NULL")
+@Where(clause = "deleted_at IS NULL")
 public class Product implements Serializable {
 
     @Id
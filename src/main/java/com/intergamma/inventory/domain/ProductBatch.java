@@ -0,0 +1,37 @@
+package com.intergamma.inventory.domain;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Products looked up by id or code, in the order they were requested, and the ids or codes that weren't found.
+ */
+public class ProductBatch<K> implements Serializable {
+
+    private List<Product> products;
+    private List<K> missing;
+
+    public ProductBatch() {
+    }
+
+    public ProductBatch(final List<Product> products, final List<K> missing) {
+        this.products = products;
+        this.missing = missing;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(final List<Product> products) {
+        this.products = products;
+    }
+
+    public List<K> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(final List<K> missing) {
+        this.missing = missing;
+    }
+}
@@ -0,0 +1,101 @@
+package com.intergamma.inventory.domain;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * One change of the stock of a product in the stock movement ledger: the signed quantity change and the stock after it.
+ */
+public class StockMovement implements Serializable {
+
+    public enum Type {
+        RECEIPT, SALE, CORRECTION, RESERVATION_COMMIT
+    }
+
+    private Long id;
+    private Long productId;
+
+    @NotNull
+    private Type type;
+
+    @NotNull
+    private Long quantity;
+
+    private Long quantityAfter;
+
+    @Size(max = 255)
+    private String reference;
+
+    private Instant createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(final Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(final Long productId) {
+        this.productId = productId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(final Type type) {
+        this.type = type;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(final Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Long getQuantityAfter() {
+        return quantityAfter;
+    }
+
+    public void setQuantityAfter(final Long quantityAfter) {
+        this.quantityAfter = quantityAfter;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(final String reference) {
+        this.reference = reference;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(final Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "StockMovement{" +
+            "id=" + getId() +
+            ", productId=" + getProductId() +
+            ", type=" + getType() +
+            ", quantity=" + getQuantity() +
+            ", quantityAfter=" + getQuantityAfter() +
+            ", reference='" + getReference() + "'" +
+            ", createdAt=" + getCreatedAt() +
+            "}";
+    }
+}
@@ -0,0 +1,107 @@
+package com.intergamma.inventory.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+
+/**
+ * Low-stock threshold of a product or of all products in a category. A product threshold takes precedence over the
+ * threshold of its category, which takes precedence over {@code intergamma.low-stock.default-threshold}.
+ */
+@Entity
+@Table(name = "stock_threshold")
+public class StockThreshold implements Serializable {
+
+    @Id
+    @GeneratedValue(generator = "stock_threshold_seq_generator", strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @NotNull
+    @Min(0)
+    @Column(name = "threshold", nullable = false)
+    private Integer threshold;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public StockThreshold id(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public StockThreshold productId(Long productId) {
+        this.productId = productId;
+        return this;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public StockThreshold categoryId(Long categoryId) {
+        this.categoryId = categoryId;
+        return this;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Integer getThreshold() {
+        return threshold;
+    }
+
+    public StockThreshold threshold(Integer threshold) {
+        this.threshold = threshold;
+        return this;
+    }
+
+    public void setThreshold(Integer threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StockThreshold)) {
+            return false;
+        }
+        return id != null && id.equals(((StockThreshold) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "StockThreshold{" +
+            "id=" + getId() +
+            ", productId=" + getProductId() +
+            ", categoryId=" + getCategoryId() +
+            ", threshold=" + getThreshold() +
+            "}";
+    }
+}
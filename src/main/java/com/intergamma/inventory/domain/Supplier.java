@@ -1,11 +1,24 @@
 package com.intergamma.inventory.domain;
 
+import org.hibernate.annotations.ResultCheckStyle;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.Where;
+
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import java.io.Serializable;
 
+/**
+ * Deleting a supplier leaves a tombstone for the delta sync, see {@code add_catalog_change_tracking_v1}. Like the
+ * foreign key did before, a supplier of live products can't be deleted: the delete then updates no row, which fails the
+ * flush instead of passing silently.
+ */
 @Entity
 @Table(name = "supplier")
+@SQLDelete(sql = "UPDATE supplier SET deleted_at = now() WHERE id = ? AND deleted_at IS NULL"
+                + " AND NOT EXISTS (SELECT 1 FROM product p WHERE p.supplier_id = supplier.id AND p.deleted_at IS NULL)",
+                check = ResultCheckStyle.COUNT)
+@Where(clause = "deleted_at IS NULL")
 public class Supplier implements Serializable {
 
     @Id
@@ -0,0 +1,15 @@
+package com.intergamma.inventory.exception;
+
+/**
+ * The reservation store doesn't respond and the reservation can't be decided locally.
+ */
+public class ReservationStoreUnavailableException extends RuntimeException {
+
+    public ReservationStoreUnavailableException(final String message) {
+        super(message);
+    }
+
+    public ReservationStoreUnavailableException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,28 @@
+package com.intergamma.inventory.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A lookup in an in-memory cache of the application, a miss including the load of the value.
+ */
+@Name("com.intergamma.inventory.CacheAccess")
+@Label("Cache Access")
+@Category({"Inventory", "Cache"})
+@Description("Lookup in an in-memory cache, a miss including the load")
+@StackTrace(false)
+public class CacheAccessEvent extends Event {
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Hit")
+    public boolean hit;
+}
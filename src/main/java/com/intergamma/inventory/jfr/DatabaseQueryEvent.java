@@ -0,0 +1,24 @@
+package com.intergamma.inventory.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The execution of a JDBC statement, issued by a repository or a {@code JdbcTemplate}. The stack trace shows which.
+ */
+@Name("com.intergamma.inventory.DatabaseQuery")
+@Label("Database Query")
+@Category({"Inventory", "Database"})
+@Description("Execution of a JDBC statement")
+public class DatabaseQueryEvent extends Event {
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Method")
+    @Description("The execute method of the statement")
+    public String method;
+}
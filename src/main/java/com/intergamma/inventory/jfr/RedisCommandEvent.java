@@ -0,0 +1,30 @@
+package com.intergamma.inventory.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Redis command or script issued by the reservation store, covering the reservations of a whole batch for the
+ * batched scripts.
+ */
+@Name("com.intergamma.inventory.RedisCommand")
+@Label("Redis Command")
+@Category({"Inventory", "Redis"})
+@Description("Redis command or Lua script issued by the reservation store")
+@StackTrace(false)
+public class RedisCommandEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Batch Size")
+    @Description("Number of reservations decided by the command")
+    public int batchSize;
+}
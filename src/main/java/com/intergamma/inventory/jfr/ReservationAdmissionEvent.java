@@ -0,0 +1,36 @@
+package com.intergamma.inventory.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The admission of one reservation, from the stock lookup until the decision of the reservation store.
+ */
+@Name("com.intergamma.inventory.ReservationAdmission")
+@Label("Reservation Admission")
+@Category({"Inventory", "Reservation"})
+@Description("Admission of a reservation against the unreserved stock of a product")
+@StackTrace(false)
+public class ReservationAdmissionEvent extends Event {
+
+    @Label("Product Id")
+    public long productId;
+
+    @Label("Supplier Id")
+    public long supplierId;
+
+    @Label("Quantity")
+    public int quantity;
+
+    @Label("Outcome")
+    @Description("allowed, rejected, not-found or failed")
+    public String outcome;
+
+    @Label("Hot Product")
+    @Description("Whether the reservation was admitted in a batch of a hot product")
+    public boolean hot;
+}
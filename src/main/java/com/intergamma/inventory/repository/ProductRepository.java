@@ -5,6 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @SuppressWarnings("unused")
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -12,4 +15,14 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.code = ?1")
     Product findProductByCode(String code);
 
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.supplier LEFT JOIN FETCH p.category WHERE p.id IN ?1")
+    List<Product> findAllWithSupplierAndCategoryByIdIn(Collection<Long> ids);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.supplier LEFT JOIN FETCH p.category WHERE p.code IN ?1")
+    List<Product> findAllWithSupplierAndCategoryByCodeIn(Collection<String> codes);
+
+    boolean existsBySupplierId(Long supplierId);
+
+    boolean existsByCategoryId(Long categoryId);
+
 }
@@ -0,0 +1,9 @@
+package com.intergamma.inventory.repository;
+
+import com.intergamma.inventory.domain.StockThreshold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockThresholdRepository extends JpaRepository<StockThreshold, Long> {
+}
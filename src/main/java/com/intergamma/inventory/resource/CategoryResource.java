@@ -4,8 +4,10 @@ import com.intergamma.inventory.domain.Category;
 import com.intergamma.inventory.exception.BadRequestException;
 import com.intergamma.inventory.exception.GenericException;
 import com.intergamma.inventory.repository.CategoryRepository;
+import com.intergamma.inventory.repository.ProductRepository;
 import com.intergamma.inventory.resource.util.HeaderUtil;
 import com.intergamma.inventory.resource.util.ResponseUtil;
+import com.intergamma.inventory.service.ProductRepresentationCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -38,9 +40,16 @@ public class CategoryResource {
     private String applicationName;
 
     private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final ProductRepresentationCache productRepresentationCache;
 
-    public CategoryResource(final CategoryRepository categoryRepository) {
+    public CategoryResource(
+                    final CategoryRepository categoryRepository,
+                    final ProductRepository productRepository,
+                    final ProductRepresentationCache productRepresentationCache) {
         this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.productRepresentationCache = productRepresentationCache;
     }
 
     @Operation(summary = "Create a new category")
@@ -121,6 +130,7 @@ public class CategoryResource {
         }
 
         Category result = categoryRepository.save(category);
+        productRepresentationCache.evictAll();
 
         return ResponseEntity
                         .ok()
@@ -139,6 +149,7 @@ public class CategoryResource {
                                                                     schema = @Schema(implementation = Category.class))
                                     })
     })
+    @Transactional(readOnly = true)
     @GetMapping("/categories")
     public List<Category> getAllCategories() {
         log.debug("Getting all Categories");
@@ -164,6 +175,7 @@ public class CategoryResource {
                                     }
                     ),
     })
+    @Transactional(readOnly = true)
     @GetMapping("/categories/{id}")
     public ResponseEntity<Category> getCategory(@PathVariable Long id) {
         log.debug("Getting Category by id : {}", id);
@@ -181,12 +193,25 @@ public class CategoryResource {
                                                     @Content(
                                                                     mediaType = "application/json",
                                                                     schema = @Schema(implementation = Category.class))
-                                    })
+                                    }),
+                    @ApiResponse(
+                                    responseCode = "400",
+                                    description = "Bad Request, if the category still has products.",
+                                    content = {
+                                                    @Content(
+                                                                    mediaType = "application/json",
+                                                                    schema = @Schema(implementation = GenericException.class))
+                                    }
+                    )
     })
     @DeleteMapping("/categories/{id}")
     public ResponseEntity<Void> deleteCategory(@PathVariable Long id) {
         log.debug("Deleting Category by id : {}", id);
+        if (productRepository.existsByCategoryId(id)) {
+            throw new BadRequestException("Category still has products", ENTITY_NAME, "inuse");
+        }
         categoryRepository.deleteById(id);
+        productRepresentationCache.evictAll();
 
         return ResponseEntity
                         .noContent()
@@ -0,0 +1,53 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.exception.BadRequestException;
+import com.intergamma.inventory.service.CatalogExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api")
+public class ExportResource {
+
+    private final Logger log = LoggerFactory.getLogger(ExportResource.class);
+
+    private static final String ENTITY_NAME = "export";
+
+    private final CatalogExportService catalogExportService;
+
+    public ExportResource(final CatalogExportService catalogExportService) {
+        this.catalogExportService = catalogExportService;
+    }
+
+    @Operation(summary = "Export products, suppliers or categories as a semicolon separated CSV file")
+    @GetMapping("/export/{entity}")
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+                    @PathVariable final String entity,
+                    @RequestParam(value = "categoryId", required = false) final Long categoryId,
+                    @RequestParam(value = "supplierId", required = false) final Long supplierId,
+                    @RequestParam(value = "compression", required = false) final String compression) {
+        log.debug("Exporting {}, category : {}, supplier : {}", entity, categoryId, supplierId);
+        if (!CatalogExportService.isExportable(entity)) {
+            throw new BadRequestException("Unknown export entity", ENTITY_NAME, "unknownentity");
+        }
+        if (compression != null && !"gzip".equals(compression)) {
+            throw new BadRequestException("Unsupported compression", ENTITY_NAME, "unsupportedcompression");
+        }
+        boolean gzip = compression != null;
+
+        return ResponseEntity.ok()
+                        .contentType(gzip ? MediaType.APPLICATION_OCTET_STREAM : new MediaType("text", "csv"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                        .filename(entity + (gzip ? ".csv.gz" : ".csv"))
+                                        .build()
+                                        .toString())
+                        .body(out -> catalogExportService.exportCsv(entity, categoryId, supplierId, gzip, out));
+    }
+}
@@ -0,0 +1,47 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.domain.ImportReport;
+import com.intergamma.inventory.exception.BadRequestException;
+import com.intergamma.inventory.exception.ServiceException;
+import com.intergamma.inventory.service.CatalogImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/api")
+public class ImportResource {
+
+    private final Logger log = LoggerFactory.getLogger(ImportResource.class);
+
+    private static final String ENTITY_NAME = "import";
+
+    private final CatalogImportService catalogImportService;
+
+    public ImportResource(final CatalogImportService catalogImportService) {
+        this.catalogImportService = catalogImportService;
+    }
+
+    @Operation(summary = "Import products, suppliers or categories from a semicolon separated CSV file with a header row")
+    @PostMapping(value = "/import/{entity}", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    public ResponseEntity<ImportReport> importCsv(
+                    @PathVariable final String entity,
+                    @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) final String contentEncoding,
+                    final InputStream body) throws IOException {
+        log.debug("Importing {} CSV", entity);
+        InputStream csv = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 1 << 16) : body;
+        try {
+            return ResponseEntity.ok(catalogImportService.importCsv(entity, csv));
+        }
+        catch (ServiceException e) {
+            throw new BadRequestException(e.getMessage(), ENTITY_NAME, "invalidimport");
+        }
+    }
+}
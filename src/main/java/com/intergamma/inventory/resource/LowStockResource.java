@@ -0,0 +1,36 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.domain.LowStockItem;
+import com.intergamma.inventory.service.LowStockRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+public class LowStockResource {
+
+    private final Logger log = LoggerFactory.getLogger(LowStockResource.class);
+
+    private final LowStockRegistry lowStockRegistry;
+
+    public LowStockResource(final LowStockRegistry lowStockRegistry) {
+        this.lowStockRegistry = lowStockRegistry;
+    }
+
+    @Operation(summary = "Products at or below their low-stock threshold, lowest available quantity first")
+    @GetMapping("/low-stock")
+    public ResponseEntity<List<LowStockItem>> getLowStock(
+                    @RequestParam(value = "page", defaultValue = "0") final int page,
+                    @RequestParam(value = "size", defaultValue = "100") final int size) {
+        log.debug("Getting low-stock products, page {} of size {}", page, size);
+        return ResponseEntity
+                        .ok()
+                        .header("X-Total-Count", Long.toString(lowStockRegistry.count()))
+                        .body(lowStockRegistry.findAll(Math.max(page, 0), Math.max(Math.min(size, 1000), 1)));
+    }
+}
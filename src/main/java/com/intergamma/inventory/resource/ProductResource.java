@@ -1,11 +1,23 @@
 package com.intergamma.inventory.resource;
 
+import com.intergamma.inventory.domain.CatalogChanges;
 import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.domain.ProductBatch;
+import com.intergamma.inventory.domain.StockMovement;
 import com.intergamma.inventory.exception.BadRequestException;
 import com.intergamma.inventory.exception.GenericException;
+import com.intergamma.inventory.exception.ServiceException;
 import com.intergamma.inventory.repository.ProductRepository;
 import com.intergamma.inventory.resource.util.HeaderUtil;
 import com.intergamma.inventory.resource.util.ResponseUtil;
+import com.intergamma.inventory.service.CatalogSyncService;
+import com.intergamma.inventory.service.FieldProjectionService;
+import com.intergamma.inventory.service.LowStockDetector;
+import com.intergamma.inventory.service.ProductCodeFilter;
+import com.intergamma.inventory.service.ProductLoader;
+import com.intergamma.inventory.service.ProductRepresentationCache;
+import com.intergamma.inventory.service.ProductRepresentationCache.Representation;
+import com.intergamma.inventory.service.StockMovementService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,18 +26,34 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
+@Lazy(false)
 @RequestMapping("/api")
 @Transactional
 public class ProductResource {
@@ -34,13 +62,45 @@ public class ProductResource {
 
     private static final String ENTITY_NAME = "product";
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final List<MediaType> BINARY_MEDIA_TYPES = List.of(MediaType.APPLICATION_CBOR, new MediaType("application", "x-jackson-smile"));
+
     @Value("${intergamma.api.name}")
     private String applicationName;
 
+    @Value("${intergamma.product-loader.max-multi-get-size}")
+    private int maxMultiGetSize;
+
+    @Value("${intergamma.catalog-sync.max-page-size}")
+    private int maxSyncPageSize;
+
     private final ProductRepository productRepository;
+    private final ProductLoader productLoader;
+    private final ProductRepresentationCache productRepresentationCache;
+    private final LowStockDetector lowStockDetector;
+    private final FieldProjectionService fieldProjectionService;
+    private final ProductCodeFilter productCodeFilter;
+    private final StockMovementService stockMovementService;
+    private final CatalogSyncService catalogSyncService;
 
-    public ProductResource(final ProductRepository productRepository) {
+    public ProductResource(
+                    final ProductRepository productRepository,
+                    final ProductLoader productLoader,
+                    final ProductRepresentationCache productRepresentationCache,
+                    final LowStockDetector lowStockDetector,
+                    final FieldProjectionService fieldProjectionService,
+                    final ProductCodeFilter productCodeFilter,
+                    final StockMovementService stockMovementService,
+                    final CatalogSyncService catalogSyncService) {
         this.productRepository = productRepository;
+        this.productLoader = productLoader;
+        this.productRepresentationCache = productRepresentationCache;
+        this.lowStockDetector = lowStockDetector;
+        this.fieldProjectionService = fieldProjectionService;
+        this.productCodeFilter = productCodeFilter;
+        this.stockMovementService = stockMovementService;
+        this.catalogSyncService = catalogSyncService;
     }
 
     @Operation(summary = "Create a new product")
@@ -69,12 +129,17 @@ public class ProductResource {
         if (product.getId() != null) {
             throw new BadRequestException("Product has already an ID", ENTITY_NAME, "mustbeempty");
         }
-        Product productAlreadyExists = productRepository.findProductByCode(product.getCode());
-        if (productAlreadyExists != null) {
+        if (productCodeFilter.exists(product.getCode())) {
             throw new BadRequestException("Product with unique code already exists", ENTITY_NAME, "alreadyexists");
         }
 
-        Product result = productRepository.save(product);
+        Product result = saveAndFlush(product);
+        productCodeFilter.add(result.getCode());
+        if (result.getQuantity() != 0) {
+            stockMovementService.record(result.getId(), StockMovement.Type.CORRECTION, result.getQuantity(), result.getQuantity(), "product created");
+        }
+        productRepresentationCache.evictPages();
+        lowStockDetector.productChanged(result.getId());
 
         return ResponseEntity
                         .created(new URI("/api/products/" + result.getId()))
@@ -121,11 +186,18 @@ public class ProductResource {
             throw new BadRequestException("Invalid id", ENTITY_NAME, "invalid");
         }
 
-        if (!productRepository.existsById(id)) {
-            throw new BadRequestException("Product not found", ENTITY_NAME, "notfound");
-        }
+        // locked until commit, so no stock movement commits between reading and replacing the quantity
+        long previousQuantity = stockMovementService.lockStock(id)
+                        .orElseThrow(() -> new BadRequestException("Product not found", ENTITY_NAME, "notfound"));
 
-        Product result = productRepository.save(product);
+        Product result = saveAndFlush(product);
+        productCodeFilter.add(result.getCode());
+        if (previousQuantity != result.getQuantity()) {
+            stockMovementService.record(id, StockMovement.Type.CORRECTION, result.getQuantity() - previousQuantity, result.getQuantity(),
+                            "product updated");
+        }
+        productRepresentationCache.evictProduct(id);
+        lowStockDetector.productChanged(id);
 
         return ResponseEntity
                         .ok()
@@ -144,10 +216,89 @@ public class ProductResource {
                                                                     schema = @Schema(implementation = Product.class))
                                     })
     })
+    @Transactional(readOnly = true)
     @GetMapping("/products")
-    public List<Product> getAllProducts() {
-        log.debug("Getting all Products");
-        return productRepository.findAll();
+    public ResponseEntity<?> getAllProducts(
+                    @RequestParam(value = "page", required = false) final Integer page,
+                    @RequestParam(value = "size", required = false) final Integer size,
+                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding) {
+        log.debug("Getting all Products, page : {}, size : {}", page, size);
+        if (page == null && size == null) {
+            if (prefersBinary(accept)) {
+                return binary(productRepository.findAll());
+            }
+            // the whole catalog is too large to cache as one representation
+            return ResponseEntity.ok(productRepository.findAll());
+        }
+
+        PageRequest pageRequest = PageRequest.of(page != null ? page : 0, size != null ? size : DEFAULT_PAGE_SIZE, Sort.by("id"));
+        if (prefersBinary(accept)) {
+            return binary(productRepository.findAll(pageRequest).getContent());
+        }
+        return representation(productRepresentationCache.getPage(
+                        pageRequest.getPageNumber() + ":" + pageRequest.getPageSize(),
+                        () -> Optional.of(productRepository.findAll(pageRequest).getContent())), acceptEncoding);
+    }
+
+    @Operation(summary = "Get the given fields of all products, e.g. fields=id,code,name,quantity,supplier.name")
+    @Transactional(readOnly = true)
+    @GetMapping(value = "/products", params = {"fields", "!ids", "!codes"})
+    public List<Map<String, Object>> getAllProductFields(
+                    @RequestParam(value = "fields") final String fields,
+                    @RequestParam(value = "page", required = false) final Integer page,
+                    @RequestParam(value = "size", required = false) final Integer size) {
+        log.debug("Getting fields {} of all Products, page : {}, size : {}", fields, page, size);
+        PageRequest pageRequest = page == null && size == null ? null
+                        : PageRequest.of(page != null ? page : 0, size != null ? size : DEFAULT_PAGE_SIZE);
+        try {
+            return fieldProjectionService.findAll(Product.class, fields, pageRequest);
+        }
+        catch (ServiceException e) {
+            throw new BadRequestException(e.getMessage(), ENTITY_NAME, "invalidfields");
+        }
+    }
+
+    @Operation(summary = "Get the products with the given ids, in request order")
+    @Transactional(readOnly = true)
+    @GetMapping(value = "/products", params = {"ids", "!codes"})
+    public ProductBatch<Long> getProductsByIds(
+                    @RequestParam("ids") final List<Long> ids,
+                    @RequestParam(value = "fields", required = false) final String fields) {
+        log.debug("Getting Products by ids : {}", ids);
+        rejectFields(fields);
+        Set<Long> requested = requested(ids);
+        return batch(requested, requested.isEmpty() ? List.of() : productRepository.findAllWithSupplierAndCategoryByIdIn(requested), Product::getId);
+    }
+
+    @Operation(summary = "Get the products with the given codes, in request order")
+    @Transactional(readOnly = true)
+    @GetMapping(value = "/products", params = "codes")
+    public ProductBatch<String> getProductsByCodes(
+                    @RequestParam("codes") final List<String> codes,
+                    @RequestParam(value = "fields", required = false) final String fields) {
+        log.debug("Getting Products by codes : {}", codes);
+        rejectFields(fields);
+        Set<String> requested = requested(codes);
+        return batch(requested, requested.isEmpty() ? List.of() : productRepository.findAllWithSupplierAndCategoryByCodeIn(requested), Product::getCode);
+    }
+
+    @Operation(summary = "Get the catalog changes since a sync token, the whole catalog without one")
+    @Transactional(readOnly = true)
+    @GetMapping("/products/changes")
+    public CatalogChanges getCatalogChanges(
+                    @RequestParam(value = "since", required = false) final String since,
+                    @RequestParam(value = "size", required = false) final Integer size) {
+        log.debug("Getting catalog changes since : {}", since);
+        if (size != null && size < 1) {
+            throw new BadRequestException("Size must be positive", ENTITY_NAME, "invalidsize");
+        }
+        try {
+            return catalogSyncService.changesSince(since, size == null ? maxSyncPageSize : Math.min(size, maxSyncPageSize));
+        }
+        catch (ServiceException e) {
+            throw new BadRequestException("Invalid sync token", ENTITY_NAME, "invalidtoken");
+        }
     }
 
     @Operation(summary = "Get the product by id")
@@ -169,12 +320,32 @@ public class ProductResource {
                                     }
                     ),
     })
+    @Transactional(readOnly = true)
     @GetMapping("/products/{id}")
-    public ResponseEntity<Product> getProduct(@PathVariable Long id) {
+    public ResponseEntity<?> getProduct(
+                    @PathVariable Long id,
+                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding) {
         log.debug("Getting Product by id : {}", id);
-        Optional<Product> product = productRepository.findById(id);
+        if (prefersBinary(accept)) {
+            return binary(productLoader.load(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+        }
+        Optional<Representation> product = productRepresentationCache.getProduct(id, () -> productLoader.load(id));
 
-        return ResponseUtil.wrapOrNotFound(product);
+        return representation(product, acceptEncoding);
+    }
+
+    @Operation(summary = "Get the given fields of the product by id")
+    @Transactional(readOnly = true)
+    @GetMapping(value = "/products/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getProductFields(@PathVariable Long id, @RequestParam(value = "fields") final String fields) {
+        log.debug("Getting fields {} of Product : {}", fields, id);
+        try {
+            return ResponseUtil.wrapOrNotFound(fieldProjectionService.findById(Product.class, fields, id));
+        }
+        catch (ServiceException e) {
+            throw new BadRequestException(e.getMessage(), ENTITY_NAME, "invalidfields");
+        }
     }
 
     @Operation(summary = "Delete product by id")
@@ -192,10 +363,106 @@ public class ProductResource {
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
         log.debug("Deleting Product : {}", id);
         productRepository.deleteById(id);
+        productCodeFilter.removed();
+        productRepresentationCache.evictProduct(id);
+        lowStockDetector.productChanged(id);
 
         return ResponseEntity
                         .noContent()
                         .headers(HeaderUtil.createEntityDeletedHeaders(applicationName, ENTITY_NAME, id.toString()))
                         .build();
     }
+
+    /**
+     * Saves the product, reporting a code that's already taken as a bad request: the unique constraint on the code is
+     * the final check behind the product code filter.
+     */
+    private Product saveAndFlush(final Product product) {
+        try {
+            return productRepository.saveAndFlush(product);
+        }
+        catch (DataIntegrityViolationException e) {
+            if (e.getMessage() != null && e.getMessage().contains("ux_product__code")) {
+                throw new BadRequestException("Product with unique code already exists", ENTITY_NAME, "alreadyexists");
+            }
+            throw e;
+        }
+    }
+
+    private <K> Set<K> requested(final List<K> keys) {
+        Set<K> requested = new LinkedHashSet<>(keys);
+        requested.remove(null);
+        if (requested.size() > maxMultiGetSize) {
+            throw new BadRequestException("At most " + maxMultiGetSize + " products can be requested at once", ENTITY_NAME, "toomanyids");
+        }
+        return requested;
+    }
+
+    /**
+     * A multi-get returns whole products; rejects a field projection rather than silently ignoring it.
+     */
+    private static void rejectFields(final String fields) {
+        if (fields != null) {
+            throw new BadRequestException("Fields can't be combined with ids or codes", ENTITY_NAME, "invalidfields");
+        }
+    }
+
+    private static <K> ProductBatch<K> batch(final Set<K> requested, final List<Product> found, final Function<Product, K> key) {
+        Map<K, Product> byKey = found.stream().collect(Collectors.toMap(key, Function.identity()));
+        List<Product> products = new ArrayList<>(requested.size());
+        List<K> missing = new ArrayList<>();
+        for (K k : requested) {
+            Product product = byKey.get(k);
+            if (product != null) {
+                products.add(product);
+            }
+            else {
+                missing.add(k);
+            }
+        }
+        return new ProductBatch<>(products, missing);
+    }
+
+    /**
+     * Whether the client prefers CBOR or Smile over JSON. The cached representations are JSON, so binary responses are
+     * serialized per request by the matching message converter.
+     */
+    private static boolean prefersBinary(final String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        }
+        catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (BINARY_MEDIA_TYPES.stream().anyMatch(mediaType::equalsTypeAndSubtype)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<Object> binary(final Object body) {
+        return ResponseEntity.ok().header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).body(body);
+    }
+
+    private static ResponseEntity<byte[]> representation(final Optional<Representation> representation, final String acceptEncoding) {
+        Representation result = representation.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (result.isGzipped() && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(result.getGzippedJson());
+        }
+
+        return response.body(result.getJson());
+    }
 }
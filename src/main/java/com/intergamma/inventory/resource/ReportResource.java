@@ -0,0 +1,53 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.domain.InventoryReport;
+import com.intergamma.inventory.service.InventoryReportService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api")
+public class ReportResource {
+
+    private final Logger log = LoggerFactory.getLogger(ReportResource.class);
+
+    private final InventoryReportService inventoryReportService;
+
+    public ReportResource(final InventoryReportService inventoryReportService) {
+        this.inventoryReportService = inventoryReportService;
+    }
+
+    @Operation(summary = "Stock value, low stock and reserved quantities per supplier and category")
+    @GetMapping("/reports/inventory")
+    public ResponseEntity<InventoryReport> getInventoryReport() {
+        log.debug("Getting inventory report");
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(inventoryReportService.getReport());
+    }
+
+    @Operation(summary = "Stock value, low stock and reserved quantities per supplier")
+    @GetMapping("/reports/inventory/suppliers")
+    public ResponseEntity<List<InventoryReport.StockGroup>> getSupplierReport() {
+        log.debug("Getting inventory report by supplier");
+        InventoryReport report = inventoryReportService.getReport();
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(report.getSuppliers());
+    }
+
+    @Operation(summary = "Stock value, low stock and reserved quantities per category")
+    @GetMapping("/reports/inventory/categories")
+    public ResponseEntity<List<InventoryReport.StockGroup>> getCategoryReport() {
+        log.debug("Getting inventory report by category");
+        InventoryReport report = inventoryReportService.getReport();
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(report.getCategories());
+    }
+
+    private static CacheControl cacheControl() {
+        return CacheControl.maxAge(10, TimeUnit.SECONDS);
+    }
+}
@@ -10,6 +10,7 @@ import com.intergamma.inventory.service.ReservationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +22,7 @@ import java.util.List;
 import java.util.Optional;
 
 @RestController
+@Lazy(false)
 @RequestMapping("/api")
 @Transactional
 public class ReservationResource {
@@ -29,6 +31,8 @@ public class ReservationResource {
 
     private static final String ENTITY_NAME = "reservation";
 
+    private static final int MAX_SESSION_ID_LENGTH = 256;
+
     @Value("${intergamma.api.name}")
     private String applicationName;
 
@@ -45,9 +49,10 @@ public class ReservationResource {
 
     @PostMapping("/reservations")
     public ResponseEntity<Reservation> createReservation(@Valid @RequestBody Reservation reservation) throws URISyntaxException {
+        validateSessionId(reservation.getSessionId());
         Boolean isQuantityAllowed = null;
         try {
-            isQuantityAllowed = reserveProductService.isQuantityAllowed(reservation);
+            isQuantityAllowed = reserveProductService.reserve(reservation);
         }
         catch (ServiceException e) {
             throw new BadRequestException("Product does not exist", ENTITY_NAME, "notexist");
@@ -57,32 +62,62 @@ public class ReservationResource {
             throw new BadRequestException("Reserved quantity not allowed", ENTITY_NAME, "notallowed");
         }
 
-        Reservation result = reserveProductService.addToCache(reservation);
         return ResponseEntity
-                        .created(new URI("/api/reservations/" + result.getProductId()))
-                        .headers(HeaderUtil.createdEntityCreatedHeaders(applicationName, ENTITY_NAME, result.getProductId().toString()))
-                        .body(result);
+                        .created(new URI("/api/reservations/" + reservation.getProductId()))
+                        .headers(HeaderUtil.createdEntityCreatedHeaders(applicationName, ENTITY_NAME, reservation.getProductId().toString()))
+                        .body(reservation);
     }
 
+    @Transactional(readOnly = true)
     @GetMapping("/reservations")
     public List<Reservation> getAllReservations() {
         return reserveProductService.getAllReservationsFromCache();
     }
 
+    @Transactional(readOnly = true)
     @GetMapping("/reservations/{sessionId}/{supplierId}/{productId}")
     public ResponseEntity<Reservation> getReservation(
                     @PathVariable String sessionId,
-                    @PathVariable String supplierId,
-                    @PathVariable String productId) {
-        Optional<Reservation> result = Optional.ofNullable(reserveProductService.getReservationsBySessionAndSupplierAndProductFromCache(sessionId, supplierId, productId));
+                    @PathVariable Long supplierId,
+                    @PathVariable Long productId) {
+        validateSessionId(sessionId);
+        Optional<Reservation> result = reserveProductService.getReservationsBySessionAndSupplierAndProductFromCache(sessionId, supplierId, productId);
         return ResponseUtil.wrapOrNotFound(result);
     }
 
+    @Transactional(readOnly = true)
     @GetMapping("/reservations/{supplierId}/{productId}")
     public List<Reservation> getReservationsBySupplierAndProduct(
-                    @PathVariable String supplierId,
-                    @PathVariable String productId) {
+                    @PathVariable Long supplierId,
+                    @PathVariable Long productId) {
         return reserveProductService.getReservationsBySupplierAndProductFromCache(supplierId, productId);
     }
 
-}
\ No newline at end of file
+    @Transactional(readOnly = true)
+    @GetMapping("/reservations/session/{sessionId}")
+    public List<Reservation> getReservationsBySession(@PathVariable String sessionId) {
+        validateSessionId(sessionId);
+        return reserveProductService.getReservationsBySessionFromCache(sessionId);
+    }
+
+    @DeleteMapping("/reservations/session/{sessionId}")
+    public ResponseEntity<Void> releaseReservationsBySession(@PathVariable String sessionId) {
+        log.debug("Releasing Reservations of session : {}", sessionId);
+        validateSessionId(sessionId);
+        reserveProductService.releaseReservationsBySession(sessionId);
+
+        return ResponseEntity
+                        .noContent()
+                        .headers(HeaderUtil.createEntityDeletedHeaders(applicationName, ENTITY_NAME, sessionId))
+                        .build();
+    }
+
+    private static void validateSessionId(final String sessionId) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            throw new BadRequestException("Session id is required", ENTITY_NAME, "sessionidrequired");
+        }
+        if (sessionId.length() > MAX_SESSION_ID_LENGTH) {
+            throw new BadRequestException("Session id is longer than " + MAX_SESSION_ID_LENGTH + " characters", ENTITY_NAME, "sessionidtoolong");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.domain.StockMovement;
+import com.intergamma.inventory.exception.BadRequestException;
+import com.intergamma.inventory.exception.ServiceException;
+import com.intergamma.inventory.resource.util.HeaderUtil;
+import com.intergamma.inventory.service.LowStockDetector;
+import com.intergamma.inventory.service.ProductRepresentationCache;
+import com.intergamma.inventory.service.StockMovementService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+@Transactional
+public class StockMovementResource {
+
+    private final Logger log = LoggerFactory.getLogger(StockMovementResource.class);
+
+    private static final String ENTITY_NAME = "stockMovement";
+
+    @Value("${intergamma.api.name}")
+    private String applicationName;
+
+    @Value("${intergamma.stock-movement.history-months}")
+    private int historyMonths;
+
+    @Value("${intergamma.stock-movement.max-history-size}")
+    private int maxHistorySize;
+
+    private final StockMovementService stockMovementService;
+    private final ProductRepresentationCache productRepresentationCache;
+    private final LowStockDetector lowStockDetector;
+
+    public StockMovementResource(
+                    final StockMovementService stockMovementService,
+                    final ProductRepresentationCache productRepresentationCache,
+                    final LowStockDetector lowStockDetector) {
+        this.stockMovementService = stockMovementService;
+        this.productRepresentationCache = productRepresentationCache;
+        this.lowStockDetector = lowStockDetector;
+    }
+
+    @Operation(summary = "Apply a receipt, sale, correction or reservation commit to the stock of a product")
+    @PostMapping("/products/{id}/movements")
+    public ResponseEntity<StockMovement> createStockMovement(@PathVariable Long id, @Valid @RequestBody StockMovement stockMovement)
+                    throws URISyntaxException {
+        log.debug("Saving StockMovement for Product {} : {}", id, stockMovement);
+        if (stockMovement.getId() != null) {
+            throw new BadRequestException("StockMovement has already an ID", ENTITY_NAME, "mustbeempty");
+        }
+        StockMovement result;
+        try {
+            result = stockMovementService.apply(id, stockMovement);
+        }
+        catch (ServiceException e) {
+            throw new BadRequestException(e.getMessage(), ENTITY_NAME, "invalidmovement");
+        }
+        productRepresentationCache.evictProduct(id);
+        lowStockDetector.productChanged(id);
+
+        return ResponseEntity
+                        .created(new URI("/api/products/" + id + "/movements"))
+                        .headers(HeaderUtil.createdEntityCreatedHeaders(applicationName, ENTITY_NAME, result.getId().toString()))
+                        .body(result);
+    }
+
+    @Operation(summary = "Get the stock movements of a product of the last months, newest first")
+    @Transactional(readOnly = true)
+    @GetMapping("/products/{id}/movements")
+    public List<StockMovement> getStockMovements(
+                    @PathVariable Long id,
+                    @RequestParam(value = "months", required = false) final Integer months,
+                    @RequestParam(value = "size", required = false) final Integer size) {
+        log.debug("Getting StockMovements of Product {}, months : {}, size : {}", id, months, size);
+        return stockMovementService.findByProduct(id, months != null ? Math.max(months, 1) : historyMonths,
+                        size != null ? Math.max(Math.min(size, maxHistorySize), 1) : maxHistorySize);
+    }
+}
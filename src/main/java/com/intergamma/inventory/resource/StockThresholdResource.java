@@ -0,0 +1,133 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.domain.StockThreshold;
+import com.intergamma.inventory.exception.BadRequestException;
+import com.intergamma.inventory.repository.StockThresholdRepository;
+import com.intergamma.inventory.resource.util.HeaderUtil;
+import com.intergamma.inventory.resource.util.ResponseUtil;
+import com.intergamma.inventory.service.LowStockDetector;
+import io.swagger.v3.oas.annotations.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api")
+@Transactional
+public class StockThresholdResource {
+
+    private final Logger log = LoggerFactory.getLogger(StockThresholdResource.class);
+
+    private static final String ENTITY_NAME = "stockThreshold";
+
+    @Value("${intergamma.api.name}")
+    private String applicationName;
+
+    private final StockThresholdRepository stockThresholdRepository;
+    private final LowStockDetector lowStockDetector;
+
+    public StockThresholdResource(final StockThresholdRepository stockThresholdRepository, final LowStockDetector lowStockDetector) {
+        this.stockThresholdRepository = stockThresholdRepository;
+        this.lowStockDetector = lowStockDetector;
+    }
+
+    @Operation(summary = "Create a low-stock threshold for a product or a category")
+    @PostMapping("/stock-thresholds")
+    public ResponseEntity<StockThreshold> createStockThreshold(@Valid @RequestBody StockThreshold stockThreshold) throws URISyntaxException {
+        log.debug("Saving StockThreshold : {}", stockThreshold);
+        if (stockThreshold.getId() != null) {
+            throw new BadRequestException("StockThreshold has already an ID", ENTITY_NAME, "mustbeempty");
+        }
+        validateTarget(stockThreshold);
+        StockThreshold result = stockThresholdRepository.save(stockThreshold);
+        thresholdChanged(result);
+
+        return ResponseEntity
+                        .created(new URI("/api/stock-thresholds/" + result.getId()))
+                        .headers(HeaderUtil.createdEntityCreatedHeaders(applicationName, ENTITY_NAME, result.getId().toString()))
+                        .body(result);
+    }
+
+    @Operation(summary = "Update a low-stock threshold")
+    @PutMapping("/stock-thresholds/{id}")
+    public ResponseEntity<StockThreshold> updateStockThreshold(
+                    @PathVariable(value = "id", required = false) final Long id,
+                    @Valid @RequestBody StockThreshold stockThreshold
+    ) {
+        log.debug("Updating StockThreshold : {}, {}", id, stockThreshold);
+        if (stockThreshold.getId() == null || !Objects.equals(id, stockThreshold.getId())) {
+            throw new BadRequestException("Invalid id", ENTITY_NAME, "invalid");
+        }
+        validateTarget(stockThreshold);
+
+        StockThreshold previous = stockThresholdRepository.findById(id)
+                        .orElseThrow(() -> new BadRequestException("StockThreshold not found", ENTITY_NAME, "notfound"));
+        thresholdChanged(previous);
+
+        StockThreshold result = stockThresholdRepository.save(stockThreshold);
+        thresholdChanged(result);
+
+        return ResponseEntity
+                        .ok()
+                        .headers(HeaderUtil.createEntityUpdatedHeaders(applicationName, ENTITY_NAME, stockThreshold.getId().toString()))
+                        .body(result);
+    }
+
+    @Operation(summary = "Get all low-stock thresholds")
+    @Transactional(readOnly = true)
+    @GetMapping("/stock-thresholds")
+    public List<StockThreshold> getAllStockThresholds() {
+        log.debug("Getting all StockThresholds");
+        return stockThresholdRepository.findAll();
+    }
+
+    @Operation(summary = "Get the low-stock threshold by id")
+    @Transactional(readOnly = true)
+    @GetMapping("/stock-thresholds/{id}")
+    public ResponseEntity<StockThreshold> getStockThreshold(@PathVariable Long id) {
+        log.debug("Getting StockThreshold : {}", id);
+        Optional<StockThreshold> stockThreshold = stockThresholdRepository.findById(id);
+
+        return ResponseUtil.wrapOrNotFound(stockThreshold);
+    }
+
+    @Operation(summary = "Delete the low-stock threshold by id")
+    @DeleteMapping("/stock-thresholds/{id}")
+    public ResponseEntity<Void> deleteStockThreshold(@PathVariable Long id) {
+        log.debug("Deleting StockThreshold : {}", id);
+        stockThresholdRepository.findById(id).ifPresent(stockThreshold -> {
+            stockThresholdRepository.delete(stockThreshold);
+            thresholdChanged(stockThreshold);
+        });
+
+        return ResponseEntity
+                        .noContent()
+                        .headers(HeaderUtil.createEntityDeletedHeaders(applicationName, ENTITY_NAME, id.toString()))
+                        .build();
+    }
+
+    private static void validateTarget(final StockThreshold stockThreshold) {
+        if ((stockThreshold.getProductId() == null) == (stockThreshold.getCategoryId() == null)) {
+            throw new BadRequestException("Either a product or a category is required", ENTITY_NAME, "invalidtarget");
+        }
+    }
+
+    private void thresholdChanged(final StockThreshold stockThreshold) {
+        if (stockThreshold.getProductId() != null) {
+            lowStockDetector.productChanged(stockThreshold.getProductId());
+        }
+        else {
+            lowStockDetector.categoryChanged(stockThreshold.getCategoryId());
+        }
+    }
+}
@@ -3,9 +3,13 @@ package com.intergamma.inventory.resource;
 import com.intergamma.inventory.domain.Supplier;
 import com.intergamma.inventory.exception.BadRequestException;
 import com.intergamma.inventory.exception.GenericException;
+import com.intergamma.inventory.exception.ServiceException;
+import com.intergamma.inventory.repository.ProductRepository;
 import com.intergamma.inventory.repository.SupplierRepository;
 import com.intergamma.inventory.resource.util.HeaderUtil;
 import com.intergamma.inventory.resource.util.ResponseUtil;
+import com.intergamma.inventory.service.FieldProjectionService;
+import com.intergamma.inventory.service.ProductRepresentationCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -22,6 +26,7 @@ import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -38,9 +43,19 @@ public class SupplierResource {
     private String applicationName;
 
     private final SupplierRepository supplierRepository;
-
-    public SupplierResource(SupplierRepository supplierRepository) {
+    private final ProductRepository productRepository;
+    private final ProductRepresentationCache productRepresentationCache;
+    private final FieldProjectionService fieldProjectionService;
+
+    public SupplierResource(
+                    final SupplierRepository supplierRepository,
+                    final ProductRepository productRepository,
+                    final ProductRepresentationCache productRepresentationCache,
+                    final FieldProjectionService fieldProjectionService) {
         this.supplierRepository = supplierRepository;
+        this.productRepository = productRepository;
+        this.productRepresentationCache = productRepresentationCache;
+        this.fieldProjectionService = fieldProjectionService;
     }
 
     @Operation(summary = "Create a new supplier")
@@ -121,6 +136,7 @@ public class SupplierResource {
         }
 
         Supplier result = supplierRepository.save(supplier);
+        productRepresentationCache.evictAll();
 
         return ResponseEntity
                         .ok()
@@ -139,12 +155,26 @@ public class SupplierResource {
                                                                     schema = @Schema(implementation = Supplier.class))
                                     })
     })
+    @Transactional(readOnly = true)
     @GetMapping("/suppliers")
     public List<Supplier> getAllSuppliers() {
         log.debug("Getting all Suppliers");
         return supplierRepository.findAll();
     }
 
+    @Operation(summary = "Get the given fields of all suppliers, e.g. fields=id,name")
+    @Transactional(readOnly = true)
+    @GetMapping(value = "/suppliers", params = "fields")
+    public List<Map<String, Object>> getAllSupplierFields(@RequestParam(value = "fields") final String fields) {
+        log.debug("Getting fields {} of all Suppliers", fields);
+        try {
+            return fieldProjectionService.findAll(Supplier.class, fields, null);
+        }
+        catch (ServiceException e) {
+            throw new BadRequestException(e.getMessage(), ENTITY_NAME, "invalidfields");
+        }
+    }
+
     @Operation(summary = "Get the supplier by id")
     @ApiResponses(value = {
                     @ApiResponse(responseCode = "200",
@@ -164,6 +194,7 @@ public class SupplierResource {
                                     }
                     ),
     })
+    @Transactional(readOnly = true)
     @GetMapping("/suppliers/{id}")
     public ResponseEntity<Supplier> getSupplier(@PathVariable Long id) {
         log.debug("Getting Supplier : {}", id);
@@ -172,6 +203,19 @@ public class SupplierResource {
         return ResponseUtil.wrapOrNotFound(supplier);
     }
 
+    @Operation(summary = "Get the given fields of the supplier by id")
+    @Transactional(readOnly = true)
+    @GetMapping(value = "/suppliers/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getSupplierFields(@PathVariable Long id, @RequestParam(value = "fields") final String fields) {
+        log.debug("Getting fields {} of Supplier : {}", fields, id);
+        try {
+            return ResponseUtil.wrapOrNotFound(fieldProjectionService.findById(Supplier.class, fields, id));
+        }
+        catch (ServiceException e) {
+            throw new BadRequestException(e.getMessage(), ENTITY_NAME, "invalidfields");
+        }
+    }
+
     @Operation(summary = "Delete supplier by id")
     @ApiResponses(value = {
                     @ApiResponse(
@@ -181,12 +225,25 @@ public class SupplierResource {
                                                     @Content(
                                                                     mediaType = "application/json",
                                                                     schema = @Schema(implementation = Supplier.class))
-                                    })
+                                    }),
+                    @ApiResponse(
+                                    responseCode = "400",
+                                    description = "Bad Request, if the supplier still has products.",
+                                    content = {
+                                                    @Content(
+                                                                    mediaType = "application/json",
+                                                                    schema = @Schema(implementation = GenericException.class))
+                                    }
+                    )
     })
     @DeleteMapping("/suppliers/{id}")
     public ResponseEntity<Void> deleteSupplier(@PathVariable Long id) {
         log.debug("Deleting Supplier : {}", id);
+        if (productRepository.existsBySupplierId(id)) {
+            throw new BadRequestException("Supplier still has products", ENTITY_NAME, "inuse");
+        }
         supplierRepository.deleteById(id);
+        productRepresentationCache.evictAll();
 
         return ResponseEntity
                         .noContent()
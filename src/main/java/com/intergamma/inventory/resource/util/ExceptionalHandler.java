@@ -2,7 +2,10 @@ package com.intergamma.inventory.resource.util;
 
 import com.intergamma.inventory.exception.BadRequestException;
 import com.intergamma.inventory.exception.Problem;
+import com.intergamma.inventory.exception.ReservationStoreUnavailableException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -14,6 +17,9 @@ public class ExceptionalHandler {
     @Value("${intergamma.api.name}")
     private String applicationName;
 
+    @Value("#{${intergamma.reservation.circuit-breaker.open-ms} / 1000 + 1}")
+    private long retryAfterSeconds;
+
     @ExceptionHandler
     public ResponseEntity<Problem> handleBadRequestException(BadRequestException ex, NativeWebRequest request) {
         return ResponseEntity
@@ -21,4 +27,13 @@ public class ExceptionalHandler {
                         .headers(HeaderUtil.createError(applicationName, true, ex.getEntityName(), ex.getErrorKey(), ex.getMessage()))
                         .body(new Problem(ex.getEntityName(), ex.getErrorKey()));
     }
+
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleReservationStoreUnavailableException(ReservationStoreUnavailableException ex, NativeWebRequest request) {
+        return ResponseEntity
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                        .headers(HeaderUtil.createError(applicationName, true, "reservation", "unavailable", ex.getMessage()))
+                        .body(new Problem("reservation", "unavailable"));
+    }
 }
@@ -30,6 +30,10 @@ public interface HeaderUtil {
         return headers;
     }
 
+    static String sqlStatementCountHeader(final String applicationName) {
+        return "X-" + applicationName + "-sql-count";
+    }
+
     public static HttpHeaders createError(String applicationName, boolean enableTranslation, String entityName, String errorKey, String defaultMessage) {
         String message = enableTranslation ? "error." + errorKey : defaultMessage;
         HttpHeaders headers = new HttpHeaders();
@@ -0,0 +1,149 @@
+package com.intergamma.inventory.resource.util;
+
+import com.intergamma.inventory.config.RequestTiming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reports where the time of a request went in a {@code Server-Timing} header: JDBC statements ({@code db}), Redis
+ * commands ({@code redis}) and the total until the response was committed ({@code app}). Serialization happens after
+ * the headers are sent, so it is reported in a {@code Server-Timing} trailer to clients that accept trailers
+ * ({@code TE: trailers}), together with the final total, and in the optional log line.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "intergamma.server-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    @Value("${intergamma.server-timing.log:false}")
+    private boolean logTimings;
+
+    @Value("${intergamma.server-timing.log-min-duration-ms:0}")
+    private long logMinDurationMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                    throws ServletException, IOException {
+        RequestTiming.start();
+        String te = request.getHeader("TE");
+        if (te != null && te.toLowerCase(Locale.ROOT).contains("trailers")) {
+            try {
+                response.setTrailerFields(() -> Map.of(SERVER_TIMING, serializationTiming() + ", " + timing("total", RequestTiming.totalNanos())));
+                response.setHeader("Trailer", SERVER_TIMING);
+            }
+            catch (IllegalStateException e) {
+                log.debug("Server-Timing trailer not supported for {}: {}", request.getProtocol(), e.getMessage());
+            }
+        }
+
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response);
+        try {
+            filterChain.doFilter(request, timedResponse);
+        }
+        finally {
+            timedResponse.addServerTiming();
+            if (logTimings && RequestTiming.totalNanos() >= logMinDurationMs * 1_000_000) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                log.info("request method={} uri={} status={} total_ms={} db_ms={} db_statements={} redis_ms={} redis_commands={} serialization_ms={}",
+                                request.getMethod(), pattern != null ? pattern : request.getRequestURI(), response.getStatus(),
+                                millis(RequestTiming.totalNanos()), millis(RequestTiming.databaseNanos()), RequestTiming.databaseCount(),
+                                millis(RequestTiming.redisNanos()), RequestTiming.redisCount(), millis(RequestTiming.serializationNanos()));
+            }
+        }
+    }
+
+    private static String serverTiming() {
+        return timing("db", RequestTiming.databaseNanos()) + ";desc=\"" + RequestTiming.databaseCount() + " statements\", "
+                        + timing("redis", RequestTiming.redisNanos()) + ";desc=\"" + RequestTiming.redisCount() + " commands\", "
+                        + timing("app", RequestTiming.totalNanos());
+    }
+
+    private static String serializationTiming() {
+        return timing("serialization", RequestTiming.serializationNanos());
+    }
+
+    private static String timing(final String name, final long nanos) {
+        return name + ";dur=" + millis(nanos);
+    }
+
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Adds the header just before the response is committed, which happens when the body is first written to.
+     */
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private boolean added;
+
+        private ServerTimingResponse(final HttpServletResponse response) {
+            super(response);
+        }
+
+        private void addServerTiming() {
+            if (!added && !isCommitted()) {
+                setHeader(SERVER_TIMING, serverTiming());
+            }
+            added = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.intergamma.inventory.resource.util;
+
+import com.intergamma.inventory.config.SqlStatementCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the number of SQL statements executed while handling the request as a response header, outside production.
+ */
+@ControllerAdvice
+@Profile("!prod")
+public class SqlStatementCountAdvice implements ResponseBodyAdvice<Object> {
+
+    @Value("${intergamma.api.name}")
+    private String applicationName;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+                    Object body,
+                    MethodParameter returnType,
+                    MediaType selectedContentType,
+                    Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                    ServerHttpRequest request,
+                    ServerHttpResponse response) {
+        response.getHeaders().set(HeaderUtil.sqlStatementCountHeader(applicationName), String.valueOf(SqlStatementCounter.get()));
+        return body;
+    }
+}
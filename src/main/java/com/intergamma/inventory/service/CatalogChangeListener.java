@@ -0,0 +1,150 @@
+package com.intergamma.inventory.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Listens on the {@code catalog_change} channel, notified by the triggers of the
+ * {@code create_catalog_change_notify_v1} changelog, and publishes a {@link CatalogChangedEvent} per notification so
+ * the local caches of every node are invalidated within milliseconds of a commit, whoever made the change.
+ * <p>
+ * The listener holds its own connection to the primary, since notifications aren't replicated and a pooled
+ * connection would be taken out of the pool for good. Notifications sent while it is disconnected are lost, so after
+ * reconnecting every catalog table is reported as changed.
+ */
+@Service
+@ConditionalOnProperty(name = "intergamma.catalog-change.enabled", havingValue = "true", matchIfMissing = true)
+public class CatalogChangeListener {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogChangeListener.class);
+
+    private static final String CHANNEL = "catalog_change";
+    private static final List<String> TABLES = List.of("product", "supplier", "category");
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${intergamma.catalog-change.wait-ms}")
+    private int waitMs;
+
+    @Value("${intergamma.catalog-change.reconnect-delay-ms}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public CatalogChangeListener(final DataSourceProperties dataSourceProperties, final ApplicationEventPublisher eventPublisher) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        thread = new Thread(this::listen, "catalog-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                            dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("Listening for catalog changes");
+                if (reconnect) {
+                    TABLES.forEach(table -> publish(CatalogChangedEvent.all(table)));
+                }
+                reconnect = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(waitMs);
+                    if (notifications == null || notifications.length == 0) {
+                        if (!connection.isValid(5)) {
+                            throw new SQLException("Catalog change connection is no longer valid");
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        CatalogChangedEvent event = parse(notification.getParameter());
+                        if (event != null) {
+                            publish(event);
+                        }
+                    }
+                }
+            }
+            catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listening for catalog changes failed, reconnecting in {} ms: {}", reconnectDelayMs, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                }
+                catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void publish(final CatalogChangedEvent event) {
+        log.debug("Catalog changed: {}", event);
+        try {
+            eventPublisher.publishEvent(event);
+        }
+        catch (RuntimeException e) {
+            log.warn("Handling catalog change {} failed: {}", event, e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a {@code table:id,id,...} or {@code table:*} payload.
+     */
+    static CatalogChangedEvent parse(final String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            return null;
+        }
+        String table = payload.substring(0, separator);
+        String ids = payload.substring(separator + 1);
+        if (ids.equals("*")) {
+            return CatalogChangedEvent.all(table);
+        }
+        Set<Long> changed = new LinkedHashSet<>();
+        for (String id : ids.split(",")) {
+            changed.add(Long.valueOf(id));
+        }
+        return new CatalogChangedEvent(table, changed);
+    }
+}
@@ -0,0 +1,44 @@
+package com.intergamma.inventory.service;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Rows of a catalog table changed in the database, by this or any other node or outside the API. Without ids, any row
+ * of the table may have changed.
+ */
+public class CatalogChangedEvent {
+
+    private final String table;
+    private final Set<Long> ids;
+
+    public CatalogChangedEvent(final String table, final Set<Long> ids) {
+        this.table = table;
+        this.ids = ids;
+    }
+
+    public static CatalogChangedEvent all(final String table) {
+        return new CatalogChangedEvent(table, Collections.emptySet());
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public Set<Long> getIds() {
+        return ids;
+    }
+
+    public boolean isAll() {
+        return ids.isEmpty();
+    }
+
+    public boolean isProduct() {
+        return "product".equals(table);
+    }
+
+    @Override
+    public String toString() {
+        return table + ":" + (isAll() ? "*" : ids);
+    }
+}
@@ -0,0 +1,63 @@
+package com.intergamma.inventory.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes scheduled catalog exports for analytics to {@code intergamma.export.directory}. Disabled unless
+ * {@code intergamma.export.cron} is set.
+ */
+@Component
+public class CatalogExportJob {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogExportJob.class);
+
+    private static final List<String> ENTITIES = Arrays.asList("products", "suppliers", "categories");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final CatalogExportService catalogExportService;
+
+    @Value("${intergamma.export.directory}")
+    private String directory;
+
+    @Value("${intergamma.export.gzip}")
+    private boolean gzip;
+
+    public CatalogExportJob(final CatalogExportService catalogExportService) {
+        this.catalogExportService = catalogExportService;
+    }
+
+    @Scheduled(cron = "${intergamma.export.cron}")
+    public void export() {
+        String timestamp = LocalDateTime.now().format(TIMESTAMP);
+        for (String entity : ENTITIES) {
+            Path file = Paths.get(directory, entity + "-" + timestamp + (gzip ? ".csv.gz" : ".csv"));
+            Path partialFile = Paths.get(file + ".partial");
+            try {
+                Files.createDirectories(file.getParent());
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partialFile))) {
+                    catalogExportService.exportCsv(entity, null, null, gzip, out);
+                }
+                Files.move(partialFile, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException | RuntimeException e) {
+                log.error("Scheduled export of {} to {} failed", entity, file, e);
+            }
+        }
+    }
+}
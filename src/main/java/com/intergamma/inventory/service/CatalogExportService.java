@@ -0,0 +1,102 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.exception.ServiceException;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports products, suppliers and categories as semicolon separated CSV with {@code COPY ... TO STDOUT}, streaming
+ * rows from Postgres to the output without materialising entities. The export runs in a read-only transaction.
+ */
+@Service
+public class CatalogExportService {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogExportService.class);
+
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private static final Map<String, String> QUERIES = Map.of(
+                    "products", "SELECT id, code, name, description, unit, price, quantity, status, supplier_id, category_id FROM product",
+                    "suppliers", "SELECT id, name, description, address, phone, email FROM supplier",
+                    "categories", "SELECT id, name, description FROM category");
+
+    private final DataSource dataSource;
+
+    public CatalogExportService(final DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static boolean isExportable(final String entity) {
+        return QUERIES.containsKey(entity);
+    }
+
+    @Transactional(readOnly = true)
+    public long exportCsv(final String entity, final Long categoryId, final Long supplierId, final boolean gzip, final OutputStream out) {
+        String sql = "COPY (" + query(entity, categoryId, supplierId) + ") TO STDOUT WITH (FORMAT csv, HEADER true, DELIMITER ';')";
+
+        long start = System.currentTimeMillis();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            long rows;
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                rows = connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, gzipOut);
+                gzipOut.finish();
+            }
+            else {
+                rows = connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            }
+            out.flush();
+            log.info("Exported {} {} rows in {} ms", rows, entity, System.currentTimeMillis() - start);
+
+            return rows;
+        }
+        catch (SQLException | IOException e) {
+            throw new ServiceException("Export of " + entity + " failed: " + e.getMessage());
+        }
+        finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static String query(final String entity, final Long categoryId, final Long supplierId) {
+        String query = QUERIES.get(entity);
+        if (query == null) {
+            throw new ServiceException("Unknown export entity " + entity);
+        }
+
+        // COPY doesn't support bind parameters, the filters are numeric so they can safely be inlined
+        List<String> conditions = new ArrayList<>();
+        conditions.add("deleted_at IS NULL");
+        if ("products".equals(entity)) {
+            if (categoryId != null) {
+                conditions.add("category_id = " + categoryId);
+            }
+            if (supplierId != null) {
+                conditions.add("supplier_id = " + supplierId);
+            }
+        }
+        else if ("suppliers".equals(entity) && supplierId != null) {
+            conditions.add("id = " + supplierId);
+        }
+        else if ("categories".equals(entity) && categoryId != null) {
+            conditions.add("id = " + categoryId);
+        }
+
+        return query + " WHERE " + String.join(" AND ", conditions) + " ORDER BY id";
+    }
+}
@@ -0,0 +1,259 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.ImportReport;
+import com.intergamma.inventory.exception.ServiceException;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports semicolon separated CSV files, in the same layout as the Liquibase seed data, with the PostgreSQL COPY protocol.
+ * <p>
+ * The upload is streamed into a temporary staging table with text columns, so COPY never fails on a bad value.
+ * Invalid rows, including values too long for their column, are then marked with a reason and the valid rows are
+ * merged into the catalog with one {@code INSERT ... ON CONFLICT} statement, which also records changed product
+ * quantities in the stock movement ledger. The id sequence is moved past imported ids. Heap usage doesn't depend on the
+ * size of the file.
+ */
+@Service
+public class CatalogImportService {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogImportService.class);
+
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    /** The length of the {@code varchar(255)} text columns of the catalog tables. */
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepresentationCache productRepresentationCache;
+    private final LowStockDetector lowStockDetector;
+    private final ProductCodeFilter productCodeFilter;
+
+    @Value("${intergamma.import.max-reported-rejections}")
+    private int maxReportedRejections;
+
+    public CatalogImportService(
+                    final DataSource dataSource,
+                    final JdbcTemplate jdbcTemplate,
+                    final ProductRepresentationCache productRepresentationCache,
+                    final LowStockDetector lowStockDetector,
+                    final ProductCodeFilter productCodeFilter) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepresentationCache = productRepresentationCache;
+        this.lowStockDetector = lowStockDetector;
+        this.productCodeFilter = productCodeFilter;
+    }
+
+    @Transactional
+    public ImportReport importCsv(final String entity, final InputStream csv) {
+        ImportType type = ImportType.BY_NAME.get(entity);
+        if (type == null) {
+            throw new ServiceException("Unknown import entity " + entity);
+        }
+
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("CREATE TEMP TABLE " + type.stagingTable + " (row_no bigserial, "
+                        + String.join(" text, ", type.columns) + " text, reject_reason text) ON COMMIT DROP");
+
+        long received = copy(type, csv);
+
+        for (String validation : type.validations) {
+            jdbcTemplate.update(validation.replace("{staging}", type.stagingTable));
+        }
+
+        Map<String, Object> merged = jdbcTemplate.queryForMap(type.merge.replace("{staging}", type.stagingTable));
+        // rows with an explicit id don't draw from the sequence, keep it ahead of them for ids generated later
+        jdbcTemplate.queryForObject("SELECT setval('" + type.sequence + "', greatest((SELECT max(id) FROM " + type.entity + "),"
+                        + " (SELECT last_value FROM " + type.sequence + ")))", Long.class);
+
+        ImportReport report = new ImportReport();
+        report.setEntity(type.entity);
+        report.setReceived(received);
+        report.setInserted(((Number) merged.get("inserted")).longValue());
+        report.setUpdated(((Number) merged.get("updated")).longValue());
+        report.setRejected(received - report.getInserted() - report.getUpdated());
+        report.setRejectedRows(jdbcTemplate.query(
+                        "SELECT row_no, reject_reason FROM " + type.stagingTable + " WHERE reject_reason IS NOT NULL ORDER BY row_no LIMIT ?",
+                        (rs, rowNum) -> new ImportReport.RejectedRow(rs.getLong("row_no"), rs.getString("reject_reason")),
+                        maxReportedRejections));
+        report.setDurationMs(System.currentTimeMillis() - start);
+
+        if (type == ImportType.PRODUCTS) {
+            List<Long> productIds = new ArrayList<>();
+            List<String> codes = new ArrayList<>();
+            jdbcTemplate.query("SELECT p.id, p.code FROM product p JOIN " + type.stagingTable
+                            + " i ON p.code = trim(i.code) WHERE i.reject_reason IS NULL AND p.deleted_at IS NULL", rs -> {
+                productIds.add(rs.getLong(1));
+                codes.add(rs.getString(2));
+            });
+            productCodeFilter.addAll(codes);
+            lowStockDetector.productsChanged(productIds);
+        }
+        productRepresentationCache.evictAll();
+        log.info("Imported {} CSV: {} rows received, {} inserted, {} updated, {} rejected in {} ms",
+                        type.entity, received, report.getInserted(), report.getUpdated(), report.getRejected(), report.getDurationMs());
+
+        return report;
+    }
+
+    private long copy(final ImportType type, final InputStream csv) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.unwrap(PGConnection.class)
+                            .getCopyAPI()
+                            .copyIn("COPY " + type.stagingTable + " (" + String.join(", ", type.columns) + ") "
+                                                            + "FROM STDIN WITH (FORMAT csv, HEADER true, DELIMITER ';')",
+                                            csv, COPY_BUFFER_SIZE);
+        }
+        catch (SQLException | IOException e) {
+            throw new ServiceException("Malformed CSV: " + e.getMessage());
+        }
+        finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private enum ImportType {
+
+        PRODUCTS("product",
+                        Arrays.asList("id", "code", "name", "description", "unit", "price", "quantity", "status", "supplier_id", "category_id"),
+                        Arrays.asList(
+                                        "UPDATE {staging} SET reject_reason = CASE"
+                                                        + " WHEN nullif(trim(code), '') IS NULL THEN 'code is required'"
+                                                        + " WHEN nullif(trim(name), '') IS NULL THEN 'name is required'"
+                                                        + " WHEN nullif(trim(unit), '') IS NULL THEN 'unit is required'"
+                                                        + " WHEN nullif(trim(price), '') IS NULL THEN 'price is required'"
+                                                        + " WHEN nullif(trim(status), '') IS NULL THEN 'status is required'"
+                                                        + tooLong("trim(code)", "name", "description", "unit", "price", "status")
+                                                        + " WHEN trim(quantity) !~ '^-?[0-9]{1,18}$' OR quantity IS NULL THEN 'quantity is not a number'"
+                                                        + " WHEN trim(id) !~ '^[0-9]{0,18}$' THEN 'id is not a number'"
+                                                        + " WHEN trim(supplier_id) !~ '^[0-9]{0,18}$' THEN 'supplier_id is not a number'"
+                                                        + " WHEN trim(category_id) !~ '^[0-9]{0,18}$' THEN 'category_id is not a number'"
+                                                        + " END",
+                                        "UPDATE {staging} i SET reject_reason = 'unknown supplier' WHERE reject_reason IS NULL"
+                                                        + " AND nullif(trim(supplier_id), '') IS NOT NULL"
+                                                        + " AND NOT EXISTS (SELECT 1 FROM supplier s WHERE s.id = trim(i.supplier_id)::bigint AND s.deleted_at IS NULL)",
+                                        "UPDATE {staging} i SET reject_reason = 'unknown category' WHERE reject_reason IS NULL"
+                                                        + " AND nullif(trim(category_id), '') IS NOT NULL"
+                                                        + " AND NOT EXISTS (SELECT 1 FROM category c WHERE c.id = trim(i.category_id)::bigint AND c.deleted_at IS NULL)",
+                                        "UPDATE {staging} i SET reject_reason = 'id belongs to a product with another code' WHERE reject_reason IS NULL"
+                                                        + " AND nullif(trim(id), '') IS NOT NULL"
+                                                        + " AND EXISTS (SELECT 1 FROM product p WHERE p.id = trim(i.id)::bigint AND p.code <> trim(i.code))",
+                                        "UPDATE {staging} i SET reject_reason = 'id belongs to a deleted product' WHERE reject_reason IS NULL"
+                                                        + " AND nullif(trim(id), '') IS NOT NULL"
+                                                        + " AND EXISTS (SELECT 1 FROM product p WHERE p.id = trim(i.id)::bigint AND p.deleted_at IS NOT NULL)",
+                                        "UPDATE {staging} SET reject_reason = 'duplicate code, superseded by a later row' WHERE row_no IN ("
+                                                        + "SELECT row_no FROM (SELECT row_no, row_number() OVER (PARTITION BY trim(code) ORDER BY row_no DESC) AS rn"
+                                                        + " FROM {staging} WHERE reject_reason IS NULL) d WHERE rn > 1)",
+                                        "UPDATE {staging} SET reject_reason = 'duplicate id, superseded by a later row' WHERE row_no IN ("
+                                                        + "SELECT row_no FROM (SELECT row_no, row_number() OVER (PARTITION BY trim(id) ORDER BY row_no DESC) AS rn"
+                                                        + " FROM {staging} WHERE reject_reason IS NULL AND nullif(trim(id), '') IS NOT NULL) d WHERE rn > 1)"),
+                        "WITH previous AS ("
+                                        + "SELECT p.code, p.quantity FROM product p JOIN {staging} i ON p.code = trim(i.code) WHERE i.reject_reason IS NULL AND p.deleted_at IS NULL), "
+                                        + "merged AS ("
+                                        + "INSERT INTO product (id, code, name, description, unit, price, quantity, status, supplier_id, category_id)"
+                                        + " SELECT coalesce(nullif(trim(id), '')::bigint, nextval('product_seq_generator')), trim(code), name,"
+                                        + " nullif(description, ''), unit, price, trim(quantity)::bigint, status,"
+                                        + " nullif(trim(supplier_id), '')::bigint, nullif(trim(category_id), '')::bigint"
+                                        + " FROM {staging} WHERE reject_reason IS NULL ORDER BY row_no"
+                                        + " ON CONFLICT (code) WHERE deleted_at IS NULL DO UPDATE SET name = excluded.name, description = excluded.description,"
+                                        + " unit = excluded.unit, price = excluded.price, quantity = excluded.quantity, status = excluded.status,"
+                                        + " supplier_id = excluded.supplier_id, category_id = excluded.category_id"
+                                        + " RETURNING id, code, quantity, (xmax = 0) AS inserted), "
+                                        + "movements AS ("
+                                        + "INSERT INTO stock_movement (product_id, type, quantity, quantity_after, reference)"
+                                        + " SELECT m.id, 'CORRECTION', m.quantity - coalesce(p.quantity, 0), m.quantity, 'import'"
+                                        + " FROM merged m LEFT JOIN previous p ON p.code = m.code WHERE m.quantity <> coalesce(p.quantity, 0)) "
+                                        + "SELECT count(*) FILTER (WHERE inserted) AS inserted, count(*) FILTER (WHERE NOT inserted) AS updated FROM merged"),
+
+        SUPPLIERS("supplier",
+                        Arrays.asList("id", "name", "description", "address", "phone", "email"),
+                        Arrays.asList(
+                                        "UPDATE {staging} SET reject_reason = CASE"
+                                                        + " WHEN nullif(trim(name), '') IS NULL THEN 'name is required'"
+                                                        + " WHEN nullif(trim(email), '') IS NULL THEN 'email is required'"
+                                                        + tooLong("name", "description", "address", "phone", "trim(email)")
+                                                        + " WHEN trim(id) !~ '^[0-9]{0,18}$' THEN 'id is not a number'"
+                                                        + " END",
+                                        "UPDATE {staging} SET reject_reason = 'duplicate id, superseded by a later row' WHERE row_no IN ("
+                                                        + "SELECT row_no FROM (SELECT row_no, row_number() OVER (PARTITION BY trim(id) ORDER BY row_no DESC) AS rn"
+                                                        + " FROM {staging} WHERE reject_reason IS NULL AND nullif(trim(id), '') IS NOT NULL) d WHERE rn > 1)"),
+                        "WITH merged AS ("
+                                        + "INSERT INTO supplier (id, name, description, address, phone, email)"
+                                        + " SELECT coalesce(nullif(trim(id), '')::bigint, nextval('supplier_seq_generator')), name,"
+                                        + " nullif(description, ''), nullif(address, ''), nullif(phone, ''), trim(email)"
+                                        + " FROM {staging} WHERE reject_reason IS NULL ORDER BY row_no"
+                                        + " ON CONFLICT (id) DO UPDATE SET name = excluded.name, description = excluded.description,"
+                                        + " address = excluded.address, phone = excluded.phone, email = excluded.email, deleted_at = NULL"
+                                        + " RETURNING (xmax = 0) AS inserted) "
+                                        + "SELECT count(*) FILTER (WHERE inserted) AS inserted, count(*) FILTER (WHERE NOT inserted) AS updated FROM merged"),
+
+        CATEGORIES("category",
+                        Arrays.asList("id", "name", "description"),
+                        Arrays.asList(
+                                        "UPDATE {staging} SET reject_reason = CASE"
+                                                        + " WHEN nullif(trim(name), '') IS NULL THEN 'name is required'"
+                                                        + tooLong("name", "description")
+                                                        + " WHEN trim(id) !~ '^[0-9]{0,18}$' THEN 'id is not a number'"
+                                                        + " END",
+                                        "UPDATE {staging} SET reject_reason = 'duplicate id, superseded by a later row' WHERE row_no IN ("
+                                                        + "SELECT row_no FROM (SELECT row_no, row_number() OVER (PARTITION BY trim(id) ORDER BY row_no DESC) AS rn"
+                                                        + " FROM {staging} WHERE reject_reason IS NULL AND nullif(trim(id), '') IS NOT NULL) d WHERE rn > 1)"),
+                        "WITH merged AS ("
+                                        + "INSERT INTO category (id, name, description)"
+                                        + " SELECT coalesce(nullif(trim(id), '')::bigint, nextval('category_seq_generator')), name, nullif(description, '')"
+                                        + " FROM {staging} WHERE reject_reason IS NULL ORDER BY row_no"
+                                        + " ON CONFLICT (id) DO UPDATE SET name = excluded.name, description = excluded.description, deleted_at = NULL"
+                                        + " RETURNING (xmax = 0) AS inserted) "
+                                        + "SELECT count(*) FILTER (WHERE inserted) AS inserted, count(*) FILTER (WHERE NOT inserted) AS updated FROM merged");
+
+        private static String tooLong(final String... values) {
+            StringBuilder cases = new StringBuilder();
+            for (String value : values) {
+                String column = value.replaceAll("^trim\\((.*)\\)$", "$1");
+                cases.append(" WHEN length(").append(value).append(") > ").append(MAX_TEXT_LENGTH)
+                                .append(" THEN '").append(column).append(" is longer than ").append(MAX_TEXT_LENGTH).append(" characters'");
+            }
+            return cases.toString();
+        }
+
+        private static final Map<String, ImportType> BY_NAME = Map.of(
+                        "products", PRODUCTS,
+                        "suppliers", SUPPLIERS,
+                        "categories", CATEGORIES);
+
+        private final String entity;
+        private final String stagingTable;
+        private final String sequence;
+        private final List<String> columns;
+        private final List<String> validations;
+        private final String merge;
+
+        ImportType(final String entity, final List<String> columns, final List<String> validations, final String merge) {
+            this.entity = entity;
+            this.stagingTable = "import_" + entity;
+            this.sequence = entity + "_seq_generator";
+            this.columns = columns;
+            this.validations = validations;
+            this.merge = merge;
+        }
+    }
+}
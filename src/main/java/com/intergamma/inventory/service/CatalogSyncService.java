@@ -0,0 +1,141 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.CatalogChanges;
+import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.exception.ServiceException;
+import com.intergamma.inventory.repository.CategoryRepository;
+import com.intergamma.inventory.repository.ProductRepository;
+import com.intergamma.inventory.repository.SupplierRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delta sync of the catalog, on the change tracking of the {@code add_catalog_change_tracking_v1} changelog. Every
+ * row records the id of the transaction that last changed it, and a sync token is a position
+ * {@code transactionId.productId} in that order.
+ * <p>
+ * A sync returns the changes of the transactions below the xmin of its snapshot only, since all of them have ended;
+ * changes of transactions still running are returned by a later sync. Products are paged; the suppliers and
+ * categories of the same transactions come along and may be repeated on the next page.
+ * <p>
+ * Must be called within a transaction, so the products are read from the same database as their changes.
+ */
+@Service
+public class CatalogSyncService {
+
+    private static final RowMapper<ChangedRow> CHANGED_ROW_MAPPER = (rs, rowNum) ->
+                    new ChangedRow(rs.getLong("id"), rs.getLong("change_txid"), rs.getBoolean("deleted"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final SupplierRepository supplierRepository;
+    private final CategoryRepository categoryRepository;
+
+    public CatalogSyncService(
+                    final JdbcTemplate jdbcTemplate,
+                    final ProductRepository productRepository,
+                    final SupplierRepository supplierRepository,
+                    final CategoryRepository categoryRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.supplierRepository = supplierRepository;
+        this.categoryRepository = categoryRepository;
+    }
+
+    /**
+     * The changes after the token, or the whole catalog including tombstones without a token.
+     *
+     * @throws ServiceException if the token is malformed
+     */
+    public CatalogChanges changesSince(final String token, final int size) {
+        long[] since = parseToken(token);
+        Long bound = jdbcTemplate.queryForObject("SELECT txid_snapshot_xmin(txid_current_snapshot())", Long.class);
+
+        List<ChangedRow> products = jdbcTemplate.query("SELECT id, change_txid, deleted_at IS NOT NULL AS deleted FROM product"
+                                        + " WHERE (change_txid, id) > (?, ?) AND change_txid < ? ORDER BY change_txid, id LIMIT ?",
+                        CHANGED_ROW_MAPPER, since[0], since[1], bound, size + 1);
+        boolean hasMore = products.size() > size;
+        long upper = bound;
+        if (hasMore) {
+            products = products.subList(0, size);
+            upper = products.get(size - 1).txid + 1;
+        }
+        List<ChangedRow> suppliers = changedRows("supplier", since[0], upper);
+        List<ChangedRow> categories = changedRows("category", since[0], upper);
+
+        CatalogChanges changes = new CatalogChanges();
+        changes.setProducts(inOrder(live(products), productRepository::findAllWithSupplierAndCategoryByIdIn, Product::getId));
+        changes.setDeletedProductIds(deleted(products));
+        changes.setSuppliers(supplierRepository.findAllById(live(suppliers)));
+        changes.setDeletedSupplierIds(deleted(suppliers));
+        changes.setCategories(categoryRepository.findAllById(live(categories)));
+        changes.setDeletedCategoryIds(deleted(categories));
+        changes.setHasMore(hasMore);
+        changes.setToken(hasMore
+                        ? products.get(size - 1).txid + "." + products.get(size - 1).id
+                        : bound + ".0");
+        return changes;
+    }
+
+    private List<ChangedRow> changedRows(final String table, final long fromTxid, final long toTxid) {
+        return jdbcTemplate.query("SELECT id, change_txid, deleted_at IS NOT NULL AS deleted FROM " + table
+                                        + " WHERE change_txid >= ? AND change_txid < ? ORDER BY change_txid, id",
+                        CHANGED_ROW_MAPPER, fromTxid, toTxid);
+    }
+
+    private static <T> List<T> inOrder(final List<Long> ids, final Function<List<Long>, List<T>> loader, final Function<T, Long> id) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, T> loaded = loader.apply(ids).stream().collect(Collectors.toMap(id, Function.identity()));
+        return ids.stream().map(loaded::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static List<Long> live(final List<ChangedRow> rows) {
+        return rows.stream().filter(row -> !row.deleted).map(row -> row.id).collect(Collectors.toList());
+    }
+
+    private static List<Long> deleted(final List<ChangedRow> rows) {
+        return rows.stream().filter(row -> row.deleted).map(row -> row.id).collect(Collectors.toList());
+    }
+
+    static long[] parseToken(final String token) {
+        if (!StringUtils.hasText(token)) {
+            return new long[] {0, 0};
+        }
+        String[] parts = token.split("\\.");
+        try {
+            if (parts.length == 2) {
+                long[] position = {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+                if (position[0] >= 0 && position[1] >= 0) {
+                    return position;
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new ServiceException("Invalid sync token " + token);
+    }
+
+    private static final class ChangedRow {
+
+        private final long id;
+        private final long txid;
+        private final boolean deleted;
+
+        private ChangedRow(final long id, final long txid, final boolean deleted) {
+            this.id = id;
+            this.txid = txid;
+            this.deleted = deleted;
+        }
+    }
+}
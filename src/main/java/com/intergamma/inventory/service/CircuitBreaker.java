@@ -0,0 +1,88 @@
+package com.intergamma.inventory.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Circuit breaker counting consecutive failed or slow calls. After {@code failureThreshold} of them the circuit opens
+ * and calls aren't permitted for {@code openMs}; then one trial call is permitted, which closes the circuit if it
+ * succeeds in time and opens it again otherwise.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+    private final BiConsumer<State, State> transitionListener;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    CircuitBreaker(final int failureThreshold, final long openMs, final long slowCallMs, final BiConsumer<State, State> transitionListener) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.transitionListener = transitionListener;
+    }
+
+    /**
+     * Whether a call is permitted. An open circuit whose open period has passed permits one trial call.
+     */
+    boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return transition(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    /**
+     * Records a call that returned, which still counts as a failure when it took longer than {@code slowCallMs}.
+     */
+    void onSuccess(final long durationNanos) {
+        if (durationNanos > slowCallNanos) {
+            onFailure();
+            return;
+        }
+        consecutiveFailures.set(0);
+        transition(State.HALF_OPEN, State.CLOSED);
+    }
+
+    void onFailure() {
+        if (state.get() == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        }
+        else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    private void open(final State from) {
+        openedAt = System.nanoTime();
+        if (transition(from, State.OPEN)) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    private boolean transition(final State from, final State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        transitionListener.accept(from, to);
+        return true;
+    }
+}
@@ -0,0 +1,331 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Reservation;
+import com.intergamma.inventory.exception.ReservationStoreUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Guards the Redis reservation store with a {@link CircuitBreaker}, so a stalled Redis costs at most the command
+ * timeout for a few requests instead of backing up the whole API.
+ * <p>
+ * While the circuit is open, reservations are decided by {@code intergamma.reservation.circuit-breaker.fallback}:
+ * <ul>
+ * <li>{@code local-share}: this instance admits reservations of a product up to {@code local-share} of its stock,
+ * kept in memory until Redis recovers and then saved to Redis;</li>
+ * <li>{@code fail-fast}: reservations are refused with a {@link ReservationStoreUnavailableException}.</li>
+ * </ul>
+ * Reads and releases always fail fast while the circuit is open, since the reservations in Redis can't be seen.
+ */
+@Component
+@Primary
+@ConditionalOnExpression("'${intergamma.reservation.store:redis}' == 'redis' && ${intergamma.reservation.circuit-breaker.enabled:true}")
+public class CircuitBreakingReservationStore implements ReservationStore {
+
+    private final Logger log = LoggerFactory.getLogger(CircuitBreakingReservationStore.class);
+
+    private static final String FALLBACK_COUNTER = "inventory.reservation.fallback";
+
+    private final RedisReservationStore delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final boolean localShare;
+    private final double share;
+    private final long ttlMs;
+
+    private final Map<String, LocalReservation> localReservations = new ConcurrentHashMap<>();
+    private final ExecutorService resyncExecutor;
+
+    private final Counter notPermitted;
+    private final Counter fallbackAdmitted;
+    private final Counter fallbackRejected;
+    private final Counter fallbackUnavailable;
+    private final Counter resynced;
+
+    public CircuitBreakingReservationStore(
+                    final RedisReservationStore delegate,
+                    final MeterRegistry meterRegistry,
+                    @Value("${spring.redis.ttl}") final long ttlSeconds,
+                    @Value("${intergamma.reservation.circuit-breaker.failure-threshold}") final int failureThreshold,
+                    @Value("${intergamma.reservation.circuit-breaker.open-ms}") final long openMs,
+                    @Value("${intergamma.reservation.circuit-breaker.slow-call-ms}") final long slowCallMs,
+                    @Value("${intergamma.reservation.circuit-breaker.fallback}") final String fallback,
+                    @Value("${intergamma.reservation.circuit-breaker.local-share}") final double share) {
+        if (!"local-share".equals(fallback) && !"fail-fast".equals(fallback)) {
+            throw new IllegalArgumentException("Unknown reservation fallback " + fallback + ", expected local-share or fail-fast");
+        }
+        this.delegate = delegate;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMs, slowCallMs, this::onTransition);
+        this.localShare = "local-share".equals(fallback);
+        this.share = share;
+        this.ttlMs = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.resyncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-resync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("inventory.reservation.circuit-breaker.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                        .description("State of the reservation store circuit: 0 closed, 1 half open, 2 open")
+                        .register(meterRegistry);
+        Gauge.builder("inventory.reservation.fallback.pending", localReservations, Map::size)
+                        .description("Reservations admitted while the circuit was open, not yet saved to Redis")
+                        .register(meterRegistry);
+        this.notPermitted = Counter.builder("inventory.reservation.circuit-breaker.not-permitted")
+                        .description("Reservation store calls refused by the open circuit")
+                        .register(meterRegistry);
+        this.fallbackAdmitted = fallbackCounter(meterRegistry, "admitted");
+        this.fallbackRejected = fallbackCounter(meterRegistry, "rejected");
+        this.fallbackUnavailable = fallbackCounter(meterRegistry, "unavailable");
+        this.resynced = Counter.builder("inventory.reservation.fallback.resynced")
+                        .description("Reservations admitted while the circuit was open and saved to Redis afterwards")
+                        .register(meterRegistry);
+    }
+
+    @Override
+    public boolean reserve(final Reservation reservation, final int stock) {
+        if (circuitBreaker.tryAcquire()) {
+            try {
+                return call(() -> delegate.reserve(reservation, stock));
+            }
+            catch (ReservationStoreUnavailableException e) {
+                log.debug("Redis failed to admit a reservation of product {}, falling back: {}", reservation.getProductId(), e.getMessage());
+            }
+        }
+        else {
+            notPermitted.increment();
+        }
+        return reserveLocally(reservation, stock);
+    }
+
+    @Override
+    public List<Boolean> reserveAll(final List<Reservation> reservations, final int stock) {
+        if (circuitBreaker.tryAcquire()) {
+            try {
+                return call(() -> delegate.reserveAll(reservations, stock));
+            }
+            catch (ReservationStoreUnavailableException e) {
+                log.debug("Redis failed to admit {} reservations of product {}, falling back: {}",
+                                reservations.size(), reservations.get(0).getProductId(), e.getMessage());
+            }
+        }
+        else {
+            notPermitted.increment();
+        }
+        List<Boolean> admitted = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            admitted.add(reserveLocally(reservation, stock));
+        }
+        return admitted;
+    }
+
+    @Override
+    public void save(final Reservation reservation) {
+        guarded(() -> {
+            delegate.save(reservation);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Reservation> find(final String sessionId, final Long supplierId, final Long productId) {
+        return guarded(() -> delegate.find(sessionId, supplierId, productId));
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        return guarded(delegate::findAll);
+    }
+
+    @Override
+    public List<Reservation> findBySupplierAndProduct(final Long supplierId, final Long productId) {
+        return guarded(() -> delegate.findBySupplierAndProduct(supplierId, productId));
+    }
+
+    @Override
+    public long reservedQuantity(final Long productId) {
+        return guarded(() -> delegate.reservedQuantity(productId));
+    }
+
+    @Override
+    public Map<Long, Long> reservedQuantities(final Collection<Long> productIds) {
+        return guarded(() -> delegate.reservedQuantities(productIds));
+    }
+
+    @Override
+    public Map<Long, Long> reservedTotals() {
+        return guarded(delegate::reservedTotals);
+    }
+
+    @Override
+    public List<Reservation> findBySession(final String sessionId) {
+        return guarded(() -> delegate.findBySession(sessionId));
+    }
+
+    @Override
+    public List<Reservation> releaseSession(final String sessionId) {
+        return guarded(() -> delegate.releaseSession(sessionId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resyncExecutor.shutdown();
+        if (!localReservations.isEmpty()) {
+            log.warn("{} reservations admitted while Redis was unavailable are lost on shutdown", localReservations.size());
+        }
+    }
+
+    CircuitBreaker.State state() {
+        return circuitBreaker.state();
+    }
+
+    private <T> T guarded(final Supplier<T> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            notPermitted.increment();
+            throw new ReservationStoreUnavailableException("Reservation store circuit is open");
+        }
+        return call(call);
+    }
+
+    private <T> T call(final Supplier<T> call) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        }
+        catch (DataAccessException e) {
+            circuitBreaker.onFailure();
+            throw new ReservationStoreUnavailableException("Reservation store failed: " + e.getMessage(), e);
+        }
+        catch (RuntimeException e) {
+            // a trial call must close or reopen the circuit, whatever it failed with
+            circuitBreaker.onFailure();
+            throw e;
+        }
+        circuitBreaker.onSuccess(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Admits the reservation if the reservations of its product admitted by this instance while the circuit is open,
+     * replacing a previous one of the same session, stay within the local share of the stock.
+     */
+    private synchronized boolean reserveLocally(final Reservation reservation, final int stock) {
+        if (!localShare) {
+            fallbackUnavailable.increment();
+            throw new ReservationStoreUnavailableException("Reservation store is unavailable");
+        }
+        long now = System.currentTimeMillis();
+        String key = key(reservation);
+        long reserved = 0;
+        for (Iterator<Map.Entry<String, LocalReservation>> iterator = localReservations.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, LocalReservation> entry = iterator.next();
+            LocalReservation local = entry.getValue();
+            if (local.expiresAt <= now) {
+                iterator.remove();
+            }
+            else if (!entry.getKey().equals(key)
+                            && local.reservation.getProductId().equals(reservation.getProductId())
+                            && local.reservation.getSupplierId().equals(reservation.getSupplierId())) {
+                reserved += local.reservation.getQuantity();
+            }
+        }
+        if (reserved + reservation.getQuantity() > (long) Math.floor(stock * share)) {
+            fallbackRejected.increment();
+            return false;
+        }
+        localReservations.put(key, new LocalReservation(reservation, now + ttlMs));
+        fallbackAdmitted.increment();
+        return true;
+    }
+
+    private void onTransition(final CircuitBreaker.State from, final CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN && from == CircuitBreaker.State.CLOSED) {
+            log.warn("Reservation store circuit opened, {}", localShare
+                            ? "admitting up to " + share + " of the stock locally"
+                            : "refusing reservations");
+        }
+        else if (to == CircuitBreaker.State.CLOSED) {
+            log.info("Reservation store circuit closed");
+            if (!localReservations.isEmpty()) {
+                resyncExecutor.execute(this::resync);
+            }
+        }
+    }
+
+    /**
+     * Saves the reservations admitted while the circuit was open to Redis. They were confirmed to the client, so they
+     * are saved as they are, even if Redis meanwhile admitted other reservations of the same stock, unless the session
+     * already reserved the product in Redis again after the circuit closed: that reservation is the newer one.
+     */
+    private void resync() {
+        long now = System.currentTimeMillis();
+        int saved = 0;
+        int superseded = 0;
+        Iterator<LocalReservation> iterator = localReservations.values().iterator();
+        while (iterator.hasNext()) {
+            LocalReservation local = iterator.next();
+            if (local.expiresAt > now) {
+                boolean stored;
+                try {
+                    stored = guarded(() -> delegate.saveIfAbsent(local.reservation));
+                }
+                catch (ReservationStoreUnavailableException e) {
+                    log.warn("Resync of reservations admitted while Redis was unavailable stopped after {}: {}", saved, e.getMessage());
+                    return;
+                }
+                if (stored) {
+                    saved++;
+                    resynced.increment();
+                }
+                else {
+                    superseded++;
+                }
+            }
+            iterator.remove();
+        }
+        log.info("Saved {} reservations admitted while Redis was unavailable, skipped {} reserved again meanwhile", saved, superseded);
+    }
+
+    private static String key(final Reservation reservation) {
+        return reservation.getProductId() + ":" + reservation.getSupplierId() + ":" + reservation.getSessionId();
+    }
+
+    private static Counter fallbackCounter(final MeterRegistry meterRegistry, final String decision) {
+        return Counter.builder(FALLBACK_COUNTER)
+                        .description("Reservations decided while the reservation store circuit was open, by decision")
+                        .tag("decision", decision)
+                        .register(meterRegistry);
+    }
+
+    private static final class LocalReservation {
+
+        private final Reservation reservation;
+        private final long expiresAt;
+
+        private LocalReservation(final Reservation reservation, final long expiresAt) {
+            this.reservation = reservation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package com.intergamma.inventory.service;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.intergamma.inventory.domain.Reservation;
+import com.intergamma.inventory.exception.ReservationStoreUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the reservations in memory, for running without a Redis server.
+ * <p>
+ * Reservations are indexed by product and supplier in primitive-keyed maps, so the admission check reads one small
+ * map instead of scanning keys, and by session for the carts. Every change is appended to a memory-mapped {@link ReservationJournal}, which is
+ * forced to disk periodically and replayed on startup. Expiry is driven by a hashed timer wheel; expired
+ * reservations are not journalled but skipped on replay, and dropped from the journal when it is compacted.
+ */
+@Component
+@ConditionalOnProperty(name = "intergamma.reservation.store", havingValue = "embedded")
+public class EmbeddedReservationStore implements ReservationStore {
+
+    private final Logger log = LoggerFactory.getLogger(EmbeddedReservationStore.class);
+
+    private static final long TICK_MS = 1000;
+    private static final int WHEEL_SIZE = 512;
+
+    private final LongObjectHashMap<LongObjectHashMap<Map<String, Entry>>> reservations = new LongObjectHashMap<>();
+    private final Map<String, Set<Entry>> carts = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TimerWheel timerWheel = new TimerWheel();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ReservationJournal journal;
+    private final long ttlMs;
+    private final long compactionThresholdBytes;
+    private long nextCompactionSize;
+    private int liveEntries;
+
+    private final Counter expired;
+
+    public EmbeddedReservationStore(
+                    final MeterRegistry meterRegistry,
+                    @Value("${spring.redis.ttl}") final long ttlSeconds,
+                    @Value("${intergamma.reservation.embedded.journal}") final String journalPath,
+                    @Value("${intergamma.reservation.embedded.journal-growth-mb}") final int journalGrowthMb,
+                    @Value("${intergamma.reservation.embedded.compaction-threshold-mb}") final int compactionThresholdMb,
+                    @Value("${intergamma.reservation.embedded.force-interval-ms}") final long forceIntervalMs) throws IOException {
+        this.ttlMs = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.compactionThresholdBytes = compactionThresholdMb * 1024L * 1024L;
+        this.nextCompactionSize = compactionThresholdBytes;
+        this.journal = new ReservationJournal(Paths.get(journalPath), journalGrowthMb * 1024 * 1024);
+
+        this.expired = Counter.builder("inventory.reservation.expired")
+                        .description("Reservations expired by the embedded store")
+                        .register(meterRegistry);
+        meterRegistry.gauge("inventory.reservation.journal.size", journal, ReservationJournal::size);
+        meterRegistry.gauge("inventory.reservation.entries", this, store -> store.liveEntries);
+
+        replay();
+
+        scheduler.scheduleWithFixedDelay(this::expire, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::forceAndCompact, forceIntervalMs, forceIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean reserve(final Reservation reservation, final int stock) {
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            Map<String, Entry> sessions = sessions(reservation.getProductId(), reservation.getSupplierId());
+            int reserved = 0;
+            if (sessions != null) {
+                for (Entry entry : sessions.values()) {
+                    if (entry.isLive(now) && !entry.sessionId.equals(reservation.getSessionId())) {
+                        reserved += entry.quantity;
+                    }
+                }
+            }
+            if (reserved + reservation.getQuantity() > stock) {
+                return false;
+            }
+            append(reservation, now);
+            touch(reservation.getSessionId(), now);
+            return true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(final Reservation reservation) {
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            append(reservation, now);
+            touch(reservation.getSessionId(), now);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Reservation> find(final String sessionId, final Long supplierId, final Long productId) {
+        lock.readLock().lock();
+        try {
+            Map<String, Entry> sessions = sessions(productId, supplierId);
+            Entry entry = sessions != null ? sessions.get(sessionId) : null;
+            return entry != null && entry.isLive(System.currentTimeMillis()) ? Optional.of(entry.toReservation()) : Optional.empty();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        long now = System.currentTimeMillis();
+        List<Reservation> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (ObjectCursor<LongObjectHashMap<Map<String, Entry>>> suppliers : reservations.values()) {
+                for (ObjectCursor<Map<String, Entry>> sessions : suppliers.value.values()) {
+                    addLive(sessions.value, now, result);
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public List<Reservation> findBySupplierAndProduct(final Long supplierId, final Long productId) {
+        List<Reservation> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<String, Entry> sessions = sessions(productId, supplierId);
+            if (sessions != null) {
+                addLive(sessions, System.currentTimeMillis(), result);
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public long reservedQuantity(final Long productId) {
+        long now = System.currentTimeMillis();
+        long reserved = 0;
+        lock.readLock().lock();
+        try {
+            LongObjectHashMap<Map<String, Entry>> suppliers = reservations.get(productId);
+            if (suppliers != null) {
+                for (ObjectCursor<Map<String, Entry>> sessions : suppliers.values()) {
+                    for (Entry entry : sessions.value.values()) {
+                        if (entry.isLive(now)) {
+                            reserved += entry.quantity;
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        return reserved;
+    }
+
+    @Override
+    public Map<Long, Long> reservedTotals() {
+        long now = System.currentTimeMillis();
+        Map<Long, Long> totals = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (LongObjectCursor<LongObjectHashMap<Map<String, Entry>>> product : reservations) {
+                long reserved = 0;
+                for (ObjectCursor<Map<String, Entry>> sessions : product.value.values()) {
+                    for (Entry entry : sessions.value.values()) {
+                        if (entry.isLive(now)) {
+                            reserved += entry.quantity;
+                        }
+                    }
+                }
+                if (reserved > 0) {
+                    totals.put(product.key, reserved);
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        return totals;
+    }
+
+    @Override
+    public List<Reservation> findBySession(final String sessionId) {
+        lock.writeLock().lock();
+        try {
+            return touch(sessionId, System.currentTimeMillis());
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> releaseSession(final String sessionId) {
+        long now = System.currentTimeMillis();
+        List<Reservation> released = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            Set<Entry> cart = carts.get(sessionId);
+            if (cart == null) {
+                return released;
+            }
+            for (Entry entry : new ArrayList<>(cart)) {
+                journal.append(entry.toRecord(ReservationJournal.REMOVE));
+                remove(entry);
+                if (entry.expiresAt > now) {
+                    released.add(entry.toReservation());
+                }
+            }
+            return released;
+        }
+        catch (IOException e) {
+            throw new ReservationStoreUnavailableException("Could not journal reservation release: " + e.getMessage(), e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        scheduler.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            journal.close();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(final Reservation reservation, final long now) {
+        Entry entry = new Entry(reservation.getSessionId(), reservation.getSupplierId(), reservation.getProductId(),
+                        reservation.getQuantity(), now + ttlMs);
+        try {
+            journal.append(entry.toRecord(ReservationJournal.PUT));
+        }
+        catch (IOException e) {
+            throw new ReservationStoreUnavailableException("Could not journal reservation: " + e.getMessage(), e);
+        }
+        put(entry);
+    }
+
+    /**
+     * Slides the expiry of all live reservations of the session, journalled as a single touch record.
+     */
+    private List<Reservation> touch(final String sessionId, final long now) {
+        List<Reservation> touched = new ArrayList<>();
+        Set<Entry> cart = carts.get(sessionId);
+        if (cart == null) {
+            return touched;
+        }
+        long expiresAt = now + ttlMs;
+        List<Entry> live = new ArrayList<>(cart.size());
+        for (Entry entry : cart) {
+            if (entry.isLive(now)) {
+                live.add(entry);
+                touched.add(entry.toReservation());
+            }
+        }
+        if (live.isEmpty() || live.stream().allMatch(entry -> entry.expiresAt == expiresAt)) {
+            return touched;
+        }
+        try {
+            journal.append(new ReservationJournal.Record(ReservationJournal.TOUCH, expiresAt, 0, 0, 0, sessionId));
+        }
+        catch (IOException e) {
+            throw new ReservationStoreUnavailableException("Could not journal reservation: " + e.getMessage(), e);
+        }
+        for (Entry entry : live) {
+            put(new Entry(entry.sessionId, entry.supplierId, entry.productId, entry.quantity, expiresAt));
+        }
+        return touched;
+    }
+
+    private void replay() {
+        long now = System.currentTimeMillis();
+        // the latest record per product and supplier, by session
+        Map<String, Map<String, ReservationJournal.Record>> latest = new HashMap<>();
+        journal.replay(record -> {
+            Map<String, ReservationJournal.Record> cart = latest.computeIfAbsent(record.sessionId, sessionId -> new HashMap<>());
+            if (record.type != ReservationJournal.TOUCH) {
+                cart.put(record.productId + "_" + record.supplierId, record);
+                return;
+            }
+            // the touch happened one TTL before its new expiry, it slid the reservations live at that time
+            long touchedAt = record.expiresAt - ttlMs;
+            cart.replaceAll((key, put) -> put.type == ReservationJournal.PUT && put.expiresAt > touchedAt
+                            ? new ReservationJournal.Record(put.type, record.expiresAt, put.productId, put.supplierId, put.quantity, put.sessionId)
+                            : put);
+        });
+
+        int skipped = 0;
+        for (Map<String, ReservationJournal.Record> cart : latest.values()) {
+            for (ReservationJournal.Record record : cart.values()) {
+                if (record.type == ReservationJournal.PUT && record.expiresAt > now) {
+                    put(new Entry(record.sessionId, record.supplierId, record.productId, record.quantity, record.expiresAt));
+                }
+                else {
+                    skipped++;
+                }
+            }
+        }
+        log.info("Replayed reservation journal: {} live reservations, {} expired or removed, {} bytes",
+                        liveEntries, skipped, journal.size());
+    }
+
+    private Map<String, Entry> sessions(final long productId, final long supplierId) {
+        LongObjectHashMap<Map<String, Entry>> suppliers = reservations.get(productId);
+        return suppliers != null ? suppliers.get(supplierId) : null;
+    }
+
+    private void put(final Entry entry) {
+        LongObjectHashMap<Map<String, Entry>> suppliers = reservations.get(entry.productId);
+        if (suppliers == null) {
+            suppliers = new LongObjectHashMap<>();
+            reservations.put(entry.productId, suppliers);
+        }
+        Map<String, Entry> sessions = suppliers.get(entry.supplierId);
+        if (sessions == null) {
+            sessions = new HashMap<>();
+            suppliers.put(entry.supplierId, sessions);
+        }
+
+        Entry previous = sessions.put(entry.sessionId, entry);
+        Set<Entry> cart = carts.computeIfAbsent(entry.sessionId, sessionId -> new HashSet<>());
+        if (previous != null) {
+            previous.removed = true;
+            cart.remove(previous);
+        }
+        else {
+            liveEntries++;
+        }
+        cart.add(entry);
+        timerWheel.schedule(entry);
+    }
+
+    private void remove(final Entry entry) {
+        entry.removed = true;
+        LongObjectHashMap<Map<String, Entry>> suppliers = reservations.get(entry.productId);
+        Map<String, Entry> sessions = suppliers.get(entry.supplierId);
+        sessions.remove(entry.sessionId);
+        liveEntries--;
+        Set<Entry> cart = carts.get(entry.sessionId);
+        cart.remove(entry);
+        if (cart.isEmpty()) {
+            carts.remove(entry.sessionId);
+        }
+        if (sessions.isEmpty()) {
+            suppliers.remove(entry.supplierId);
+            if (suppliers.isEmpty()) {
+                reservations.remove(entry.productId);
+            }
+        }
+    }
+
+    private void expire() {
+        lock.writeLock().lock();
+        try {
+            int count = timerWheel.advance(System.currentTimeMillis(), this::remove);
+            expired.increment(count);
+        }
+        catch (RuntimeException e) {
+            log.error("Reservation expiry failed", e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void forceAndCompact() {
+        lock.writeLock().lock();
+        try {
+            journal.force();
+            if (journal.size() >= nextCompactionSize) {
+                compact();
+            }
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.error("Reservation journal maintenance failed", e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        int before = journal.size();
+        List<ReservationJournal.Record> live = new ArrayList<>(liveEntries);
+        for (ObjectCursor<LongObjectHashMap<Map<String, Entry>>> suppliers : reservations.values()) {
+            for (ObjectCursor<Map<String, Entry>> sessions : suppliers.value.values()) {
+                for (Entry entry : sessions.value.values()) {
+                    if (entry.isLive(now)) {
+                        live.add(entry.toRecord(ReservationJournal.PUT));
+                    }
+                }
+            }
+        }
+        journal.rewrite(live);
+        // a journal that is mostly live data is not compacted again until it has doubled
+        nextCompactionSize = Math.max(compactionThresholdBytes, 2L * journal.size());
+        log.info("Compacted reservation journal from {} to {} bytes", before, journal.size());
+    }
+
+    private static void addLive(final Map<String, Entry> sessions, final long now, final List<Reservation> result) {
+        for (Entry entry : sessions.values()) {
+            if (entry.isLive(now)) {
+                result.add(entry.toReservation());
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final String sessionId;
+        private final long supplierId;
+        private final long productId;
+        private final int quantity;
+        private final long expiresAt;
+        private boolean removed;
+
+        private Entry(final String sessionId, final long supplierId, final long productId, final int quantity, final long expiresAt) {
+            this.sessionId = sessionId;
+            this.supplierId = supplierId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isLive(final long now) {
+            return !removed && expiresAt > now;
+        }
+
+        private Reservation toReservation() {
+            Reservation reservation = new Reservation();
+            reservation.setSessionId(sessionId);
+            reservation.setSupplierId(supplierId);
+            reservation.setProductId(productId);
+            reservation.setQuantity(quantity);
+            return reservation;
+        }
+
+        private ReservationJournal.Record toRecord(final byte type) {
+            return new ReservationJournal.Record(type, expiresAt, productId, supplierId, quantity, sessionId);
+        }
+    }
+
+    /**
+     * Hashed timer wheel with one slot per tick. Entries further away than one revolution stay in their slot until
+     * their deadline comes round.
+     */
+    private static final class TimerWheel {
+
+        private final List<List<Entry>> slots = new ArrayList<>(WHEEL_SIZE);
+        private long currentTick = System.currentTimeMillis() / TICK_MS;
+
+        private TimerWheel() {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                slots.add(new ArrayList<>());
+            }
+        }
+
+        private void schedule(final Entry entry) {
+            long deadlineTick = Math.max((entry.expiresAt + TICK_MS - 1) / TICK_MS, currentTick + 1);
+            slots.get((int) (deadlineTick % WHEEL_SIZE)).add(entry);
+        }
+
+        private int advance(final long now, final Consumer<Entry> onExpired) {
+            int count = 0;
+            long targetTick = now / TICK_MS;
+            // after a long pause one revolution visits every slot
+            long firstTick = Math.max(currentTick + 1, targetTick - WHEEL_SIZE + 1);
+            for (long tick = firstTick; tick <= targetTick; tick++) {
+                Iterator<Entry> iterator = slots.get((int) (tick % WHEEL_SIZE)).iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (entry.removed) {
+                        iterator.remove();
+                    }
+                    else if (entry.expiresAt <= now) {
+                        iterator.remove();
+                        onExpired.accept(entry);
+                        count++;
+                    }
+                }
+            }
+            currentTick = targetTick;
+            return count;
+        }
+    }
+}
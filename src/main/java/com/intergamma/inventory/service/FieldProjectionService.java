@@ -0,0 +1,177 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.exception.ServiceException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads only the requested fields of an entity with a criteria tuple query, for the {@code fields} parameter of the
+ * read endpoints. Fields are attribute names, optionally of a related entity ({@code supplier.name}); a related entity
+ * by itself ({@code supplier}) selects all its columns. The related entity is only joined when a column other than
+ * its id is requested, as the id is the foreign key column.
+ */
+@Service
+public class FieldProjectionService {
+
+    private final EntityManager entityManager;
+
+    public FieldProjectionService(final EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public List<Map<String, Object>> findAll(final Class<?> entityClass, final String fields, final Pageable pageable) {
+        return query(entityClass, fields, null, pageable);
+    }
+
+    public Optional<Map<String, Object>> findById(final Class<?> entityClass, final String fields, final Long id) {
+        return query(entityClass, fields, id, null).stream().findFirst();
+    }
+
+    private List<Map<String, Object>> query(final Class<?> entityClass, final String fields, final Long id, final Pageable pageable) {
+        EntityType<?> entity = entityManager.getMetamodel().entity(entityClass);
+        Set<List<String>> paths = parse(entity, fields);
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<?> root = query.from(entityClass);
+
+        // the foreign key of every related entity is selected as well, to tell a missing relation from null columns
+        List<String> relations = paths.stream().filter(path -> path.size() > 1).map(path -> path.get(0)).distinct().collect(Collectors.toList());
+        Map<String, Join<?, ?>> joins = new HashMap<>();
+        List<Selection<?>> selections = new ArrayList<>();
+        for (List<String> path : paths) {
+            selections.add(path(root, joins, path));
+        }
+        for (String relation : relations) {
+            selections.add(root.get(relation).get("id"));
+        }
+        query.multiselect(selections);
+        if (id != null) {
+            query.where(builder.equal(root.get("id"), id));
+        }
+        query.orderBy(builder.asc(root.get("id")));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable != null) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Tuple tuple : typedQuery.getResultList()) {
+            result.add(toMap(paths, relations, tuple));
+        }
+        return result;
+    }
+
+    private static Path<?> path(final Root<?> root, final Map<String, Join<?, ?>> joins, final List<String> path) {
+        if (path.size() == 1) {
+            return root.get(path.get(0));
+        }
+        if ("id".equals(path.get(1))) {
+            return root.get(path.get(0)).get("id");
+        }
+        return joins.computeIfAbsent(path.get(0), relation -> root.join(relation, JoinType.LEFT)).get(path.get(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(final Set<List<String>> paths, final List<String> relations, final Tuple tuple) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        int index = 0;
+        for (List<String> path : paths) {
+            Object value = tuple.get(index++);
+            if (path.size() == 1) {
+                map.put(path.get(0), value);
+            }
+            else {
+                ((Map<String, Object>) map.computeIfAbsent(path.get(0), relation -> new LinkedHashMap<>())).put(path.get(1), value);
+            }
+        }
+        for (String relation : relations) {
+            if (tuple.get(index++) == null) {
+                map.put(relation, null);
+            }
+        }
+        return map;
+    }
+
+    private static Set<List<String>> parse(final ManagedType<?> entity, final String fields) {
+        Set<List<String>> paths = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            List<String> path = Arrays.asList(field.trim().split("\\."));
+            if (path.get(0).isEmpty()) {
+                continue;
+            }
+            SingularAttribute<?, ?> attribute = attribute(entity, path.get(0), field);
+            if (path.size() == 1 && attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                paths.add(path);
+            }
+            else if (attribute.isAssociation() && path.size() == 1) {
+                for (String column : basicAttributes((ManagedType<?>) attribute.getType())) {
+                    paths.add(Arrays.asList(path.get(0), column));
+                }
+            }
+            else if (attribute.isAssociation() && path.size() == 2
+                            && attribute((ManagedType<?>) attribute.getType(), path.get(1), field).getPersistentAttributeType()
+                            == Attribute.PersistentAttributeType.BASIC) {
+                paths.add(path);
+            }
+            else {
+                throw new ServiceException("Unknown field " + field);
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new ServiceException("No fields requested");
+        }
+        return paths;
+    }
+
+    private static SingularAttribute<?, ?> attribute(final ManagedType<?> type, final String name, final String field) {
+        try {
+            return type.getSingularAttribute(name);
+        }
+        catch (IllegalArgumentException e) {
+            throw new ServiceException("Unknown field " + field);
+        }
+    }
+
+    /**
+     * The basic attributes of an entity, in declaration order so the response follows the full representation.
+     */
+    private static List<String> basicAttributes(final ManagedType<?> type) {
+        Set<String> basic = type.getSingularAttributes().stream()
+                        .filter(attribute -> attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC)
+                        .map(Attribute::getName)
+                        .collect(Collectors.toSet());
+        return Arrays.stream(type.getJavaType().getDeclaredFields())
+                        .map(Field::getName)
+                        .filter(basic::contains)
+                        .collect(Collectors.toList());
+    }
+}
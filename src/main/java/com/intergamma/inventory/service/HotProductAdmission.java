@@ -0,0 +1,221 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.domain.Reservation;
+import com.intergamma.inventory.exception.ServiceException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit of reservations for hot products. Reservations of a hot product are queued in arrival order and
+ * admitted in batches every {@code batch-window-ms}, each batch with one stock read and one atomic update of the
+ * reservation store, so concurrent requests no longer contend on the same product row and Redis hash.
+ * <p>
+ * A product is hot when it is listed in {@code product-ids}, or for {@code cooldown-ms} after it received more than
+ * {@code requests-per-second} reservations in one second. Only one batch per product is in flight at a time.
+ */
+@Service
+public class HotProductAdmission {
+
+    private final Logger log = LoggerFactory.getLogger(HotProductAdmission.class);
+
+    private final ReservationStore reservationStore;
+    private final ProductLoader productLoader;
+
+    private final boolean enabled;
+    private final Set<Long> configuredProducts;
+    private final long requestsPerSecond;
+    private final long cooldownMs;
+    private final long batchWindowMicros;
+    private final int maxBatchSize;
+
+    private final Map<Long, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final Map<Long, Long> hotUntil = new ConcurrentHashMap<>();
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    private final DistributionSummary batchSize;
+
+    public HotProductAdmission(
+                    final ReservationStore reservationStore,
+                    final ProductLoader productLoader,
+                    final MeterRegistry meterRegistry,
+                    @Value("${intergamma.reservation.hot-product.enabled}") final boolean enabled,
+                    @Value("${intergamma.reservation.hot-product.product-ids:}") final String productIds,
+                    @Value("${intergamma.reservation.hot-product.requests-per-second}") final long requestsPerSecond,
+                    @Value("${intergamma.reservation.hot-product.cooldown-ms}") final long cooldownMs,
+                    @Value("${intergamma.reservation.hot-product.batch-window-ms}") final long batchWindowMs,
+                    @Value("${intergamma.reservation.hot-product.max-batch-size}") final int maxBatchSize,
+                    @Value("${intergamma.reservation.hot-product.threads}") final int threads) {
+        this.reservationStore = reservationStore;
+        this.productLoader = productLoader;
+        this.enabled = enabled;
+        this.configuredProducts = Arrays.stream(StringUtils.commaDelimitedListToStringArray(productIds))
+                        .map(String::trim)
+                        .filter(StringUtils::hasText)
+                        .map(Long::valueOf)
+                        .collect(Collectors.toSet());
+        this.requestsPerSecond = requestsPerSecond;
+        this.cooldownMs = cooldownMs;
+        this.batchWindowMicros = TimeUnit.MILLISECONDS.toMicros(batchWindowMs);
+        this.maxBatchSize = maxBatchSize;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "hot-product-admission-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled && requestsPerSecond > 0) {
+            executor.scheduleAtFixedRate(this::detectHotProducts, 1, 1, TimeUnit.SECONDS);
+        }
+
+        this.batchSize = DistributionSummary.builder("inventory.reservation.hot-product.batch.size")
+                        .description("Number of reservations of a hot product admitted per batch")
+                        .register(meterRegistry);
+        meterRegistry.gaugeMapSize("inventory.reservation.hot-products", List.of(), hotUntil);
+    }
+
+    /**
+     * Counts the reservation request and tells whether its product is hot, so it should be admitted by
+     * {@link #reserve}.
+     */
+    public boolean isHot(final Long productId) {
+        if (!enabled) {
+            return false;
+        }
+        if (requestsPerSecond > 0) {
+            requestCounts.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        }
+        return configuredProducts.contains(productId) || hotUntil.containsKey(productId);
+    }
+
+    /**
+     * Queues the reservation for the next batch of its product and waits for the decision.
+     *
+     * @return whether the reservation was admitted
+     * @throws ServiceException if the product doesn't exist
+     */
+    public boolean reserve(final Reservation reservation) {
+        Pending pending = new Pending(reservation);
+        Lane lane = lanes.computeIfAbsent(reservation.getProductId(), id -> new Lane());
+        lane.queue.add(pending);
+        if (lane.scheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> flush(reservation.getProductId(), lane), batchWindowMicros, TimeUnit.MICROSECONDS);
+        }
+
+        try {
+            return pending.future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void flush(final Long productId, final Lane lane) {
+        List<Pending> batch = new ArrayList<>(Math.min(maxBatchSize, lane.queue.size()));
+        Pending pending;
+        while (batch.size() < maxBatchSize && (pending = lane.queue.poll()) != null) {
+            batch.add(pending);
+        }
+
+        try {
+            if (!batch.isEmpty()) {
+                admit(productId, batch);
+            }
+        }
+        finally {
+            lane.scheduled.set(false);
+            // requests queued while this batch was decided have waited long enough
+            if (!lane.queue.isEmpty() && lane.scheduled.compareAndSet(false, true)) {
+                executor.execute(() -> flush(productId, lane));
+            }
+        }
+    }
+
+    private void admit(final Long productId, final List<Pending> batch) {
+        batchSize.record(batch.size());
+        try {
+            Optional<Product> product = productLoader.loadFromPrimary(productId);
+            if (product.isEmpty()) {
+                batch.forEach(pending -> pending.future.completeExceptionally(new ServiceException("Product not found")));
+                return;
+            }
+            List<Boolean> admitted = reservationStore.reserveAll(
+                            batch.stream().map(pending -> pending.reservation).collect(Collectors.toList()),
+                            product.get().getQuantity());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(admitted.get(i));
+            }
+        }
+        catch (RuntimeException e) {
+            log.warn("Admitting {} reservations of hot product {} failed", batch.size(), productId, e);
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    private void detectHotProducts() {
+        long now = System.currentTimeMillis();
+        requestCounts.forEach((productId, count) -> {
+            if (count.sum() > requestsPerSecond && hotUntil.put(productId, now + cooldownMs) == null) {
+                log.info("Product {} is hot with {} reservations per second, admitting in batches", productId, count.sum());
+            }
+        });
+        requestCounts.clear();
+        hotUntil.entrySet().removeIf(entry -> entry.getValue() < now);
+        lanes.entrySet().removeIf(entry -> !isHotOrConfigured(entry.getKey()) && entry.getValue().queue.isEmpty() && !entry.getValue().scheduled.get());
+    }
+
+    private boolean isHotOrConfigured(final Long productId) {
+        return configuredProducts.contains(productId) || hotUntil.containsKey(productId);
+    }
+
+    private static final class Lane {
+
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private static final class Pending {
+
+        private final Reservation reservation;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private Pending(final Reservation reservation) {
+            this.reservation = reservation;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.LowStockItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the low-stock products in memory for the embedded reservation store, alerts are logged.
+ */
+@Component
+@ConditionalOnProperty(name = "intergamma.reservation.store", havingValue = "embedded")
+public class InMemoryLowStockRegistry implements LowStockRegistry {
+
+    private final Logger log = LoggerFactory.getLogger(InMemoryLowStockRegistry.class);
+
+    private final Map<Long, LowStockItem> items = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean put(final LowStockItem item) {
+        LowStockItem existing = items.put(item.getProductId(), item);
+        if (existing != null) {
+            item.setSince(Math.min(existing.getSince(), item.getSince()));
+        }
+        return existing == null;
+    }
+
+    @Override
+    public boolean remove(final Long productId) {
+        return items.remove(productId) != null;
+    }
+
+    @Override
+    public List<Long> findAllIds() {
+        return new ArrayList<>(items.keySet());
+    }
+
+    @Override
+    public List<LowStockItem> findAll(final int page, final int size) {
+        return items.values().stream()
+                        .sorted(Comparator.comparingLong(LowStockItem::getAvailable).thenComparing(LowStockItem::getProductId))
+                        .skip((long) page * size)
+                        .limit(size)
+                        .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return items.size();
+    }
+
+    @Override
+    public void publish(final String type, final LowStockItem item) {
+        log.warn("Low stock alert {}: product {} has {} available, threshold {}",
+                        type, item.getProductId(), item.getAvailable(), item.getThreshold());
+    }
+}
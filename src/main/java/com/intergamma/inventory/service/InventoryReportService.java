@@ -0,0 +1,166 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.InventoryReport;
+import com.intergamma.inventory.domain.InventoryReport.StockGroup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Computes the inventory report with one {@code GROUP BY GROUPING SETS} query, so no entity is loaded. The reserved
+ * totals per product come from the reservation store, without reading the reservations themselves, and are joined into
+ * the query as arrays.
+ * <p>
+ * The report is cached for {@code intergamma.report.ttl-ms} and refreshed in the background while it is being read,
+ * so requests are normally served from the snapshot.
+ */
+@Service
+public class InventoryReportService {
+
+    private final Logger log = LoggerFactory.getLogger(InventoryReportService.class);
+
+    private static final String REPORT_QUERY = "WITH reserved AS ("
+                    + "SELECT * FROM unnest(?::bigint[], ?::bigint[]) AS r(product_id, quantity)), "
+                    + "stock AS ("
+                    + "SELECT p.supplier_id, p.category_id, p.quantity, coalesce(r.quantity, 0) AS reserved,"
+                    + " coalesce(pt.threshold, ct.threshold, ?) AS threshold,"
+                    + " p.quantity * CASE WHEN replace(p.price, ',', '.') ~ '^[0-9]+(\\.[0-9]+)?$'"
+                    + " THEN replace(p.price, ',', '.')::numeric ELSE 0 END AS stock_value"
+                    + " FROM product p LEFT JOIN reserved r ON r.product_id = p.id"
+                    + " LEFT JOIN stock_threshold pt ON pt.product_id = p.id"
+                    + " LEFT JOIN stock_threshold ct ON ct.category_id = p.category_id"
+                    + " WHERE p.deleted_at IS NULL), "
+                    + "totals AS ("
+                    + "SELECT supplier_id, category_id, grouping(supplier_id) AS by_category, grouping(category_id) AS by_supplier,"
+                    + " count(*) AS products, coalesce(sum(quantity), 0) AS quantity, coalesce(sum(stock_value), 0) AS stock_value,"
+                    + " count(*) FILTER (WHERE quantity - reserved <= threshold) AS low_stock, coalesce(sum(reserved), 0) AS reserved"
+                    + " FROM stock GROUP BY GROUPING SETS ((supplier_id), (category_id), ())) "
+                    + "SELECT t.*, s.name AS supplier_name, c.name AS category_name FROM totals t"
+                    + " LEFT JOIN supplier s ON s.id = t.supplier_id"
+                    + " LEFT JOIN category c ON c.id = t.category_id"
+                    + " ORDER BY t.supplier_id NULLS LAST, t.category_id NULLS LAST";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReservationStore reservationStore;
+    private final Timer refreshTimer;
+
+    @Value("${intergamma.report.ttl-ms}")
+    private long ttlMs;
+
+    @Value("${intergamma.low-stock.default-threshold}")
+    private int lowStockThreshold;
+
+    private volatile InventoryReport snapshot;
+    private volatile boolean readSinceRefresh;
+
+    public InventoryReportService(
+                    final JdbcTemplate jdbcTemplate,
+                    final PlatformTransactionManager transactionManager,
+                    final ReservationStore reservationStore,
+                    final MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.reservationStore = reservationStore;
+        this.refreshTimer = Timer.builder("inventory.report.refresh")
+                        .description("Time to compute the inventory report")
+                        .register(meterRegistry);
+    }
+
+    public InventoryReport getReport() {
+        readSinceRefresh = true;
+        InventoryReport report = snapshot;
+        if (report == null || report.getGeneratedAt().plusMillis(ttlMs).isBefore(Instant.now())) {
+            report = refreshIfStale();
+        }
+        return report;
+    }
+
+    @Scheduled(fixedDelayString = "${intergamma.report.refresh-interval-ms}")
+    public void refreshInBackground() {
+        if (snapshot != null && readSinceRefresh) {
+            readSinceRefresh = false;
+            try {
+                refresh();
+            }
+            catch (RuntimeException e) {
+                log.warn("Background refresh of the inventory report failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized InventoryReport refreshIfStale() {
+        InventoryReport report = snapshot;
+        if (report != null && !report.getGeneratedAt().plusMillis(ttlMs).isBefore(Instant.now())) {
+            return report;
+        }
+        return refresh();
+    }
+
+    private InventoryReport refresh() {
+        InventoryReport report = refreshTimer.record(() -> readOnlyTransaction.execute(status -> compute()));
+        snapshot = report;
+        return report;
+    }
+
+    private InventoryReport compute() {
+        Map<Long, Long> reserved = reservationStore.reservedTotals();
+        Long[] reservedIds = new Long[reserved.size()];
+        Long[] reservedQuantities = new Long[reserved.size()];
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : reserved.entrySet()) {
+            reservedIds[i] = entry.getKey();
+            reservedQuantities[i++] = entry.getValue();
+        }
+
+        InventoryReport report = new InventoryReport();
+        report.setGeneratedAt(Instant.now());
+        report.setLowStockThreshold(lowStockThreshold);
+        report.setSuppliers(new ArrayList<>());
+        report.setCategories(new ArrayList<>());
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(REPORT_QUERY);
+            statement.setArray(1, connection.createArrayOf("bigint", reservedIds));
+            statement.setArray(2, connection.createArrayOf("bigint", reservedQuantities));
+            statement.setInt(3, lowStockThreshold);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            boolean bySupplier = rs.getInt("by_supplier") == 1 && rs.getInt("by_category") == 0;
+            boolean byCategory = rs.getInt("by_category") == 1 && rs.getInt("by_supplier") == 0;
+            Long id = bySupplier ? rs.getObject("supplier_id", Long.class) : byCategory ? rs.getObject("category_id", Long.class) : null;
+            String name = bySupplier ? rs.getString("supplier_name") : byCategory ? rs.getString("category_name") : null;
+            StockGroup group = new StockGroup(id, name, rs.getLong("products"), rs.getLong("quantity"), rs.getBigDecimal("stock_value"),
+                            rs.getLong("low_stock"), rs.getLong("reserved"));
+            if (bySupplier) {
+                report.getSuppliers().add(group);
+            }
+            else if (byCategory) {
+                report.getCategories().add(group);
+            }
+            else {
+                report.setTotal(group);
+            }
+        });
+
+        if (report.getTotal() == null) {
+            report.setTotal(new StockGroup(null, null, 0, 0, BigDecimal.ZERO, 0, 0));
+        }
+        return report;
+    }
+}
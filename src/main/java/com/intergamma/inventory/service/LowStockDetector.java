@@ -0,0 +1,203 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.LowStockItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Detects products whose available quantity, stock minus reservations, is at or below their low-stock threshold.
+ * <p>
+ * Only products touched by a stock update, a threshold change or a reservation are evaluated: they are collected
+ * after commit and evaluated in batches with one query, so the cost follows the change rate instead of the catalog
+ * size. Products already low on stock are re-evaluated periodically, as expiring reservations don't touch them.
+ * Transitions are published to the {@link LowStockRegistry}.
+ */
+@Service
+public class LowStockDetector {
+
+    private final Logger log = LoggerFactory.getLogger(LowStockDetector.class);
+
+    private static final String THRESHOLD_QUERY = "SELECT p.id, p.quantity, coalesce(pt.threshold, ct.threshold, ?) AS threshold"
+                    + " FROM product p"
+                    + " LEFT JOIN stock_threshold pt ON pt.product_id = p.id"
+                    + " LEFT JOIN stock_threshold ct ON ct.category_id = p.category_id"
+                    + " WHERE p.id = ANY(?::bigint[]) AND p.deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReservationStore reservationStore;
+    private final LowStockRegistry lowStockRegistry;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingCategories = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-detector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int defaultThreshold;
+    private final int maxBatchSize;
+
+    private final Counter evaluations;
+    private final Counter alerts;
+
+    public LowStockDetector(
+                    final JdbcTemplate jdbcTemplate,
+                    final ReservationStore reservationStore,
+                    final LowStockRegistry lowStockRegistry,
+                    final MeterRegistry meterRegistry,
+                    @Value("${intergamma.low-stock.default-threshold}") final int defaultThreshold,
+                    @Value("${intergamma.low-stock.batch-delay-ms}") final long batchDelayMs,
+                    @Value("${intergamma.low-stock.max-batch-size}") final int maxBatchSize,
+                    @Value("${intergamma.low-stock.recheck-interval-ms}") final long recheckIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservationStore = reservationStore;
+        this.lowStockRegistry = lowStockRegistry;
+        this.defaultThreshold = defaultThreshold;
+        this.maxBatchSize = maxBatchSize;
+
+        this.evaluations = Counter.builder("inventory.low-stock.evaluations")
+                        .description("Products evaluated by the low-stock detector")
+                        .register(meterRegistry);
+        this.alerts = Counter.builder("inventory.low-stock.alerts")
+                        .description("Low-stock alerts published")
+                        .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("inventory.low-stock.pending", Collections.emptyList(), pending);
+
+        scheduler.scheduleWithFixedDelay(this::evaluatePending, batchDelayMs, batchDelayMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::recheckLowStock, recheckIntervalMs, recheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules the evaluation of a product, once the current transaction has committed.
+     */
+    public void productChanged(final Long productId) {
+        afterCommit(() -> pending.add(productId));
+    }
+
+    public void productsChanged(final Collection<Long> productIds) {
+        afterCommit(() -> pending.addAll(productIds));
+    }
+
+    /**
+     * Schedules the evaluation of all products of a category, once the current transaction has committed. The
+     * products are looked up on the detector thread, so the committing request doesn't wait for them.
+     */
+    public void categoryChanged(final Long categoryId) {
+        afterCommit(() -> pendingCategories.add(categoryId));
+    }
+
+    /**
+     * Evaluates products whose stock may have been changed by another node or outside the API.
+     */
+    @EventListener
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        if (event.isProduct() && !event.isAll()) {
+            pending.addAll(event.getIds());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void evaluatePending() {
+        try {
+            for (Long categoryId : pendingCategories) {
+                pending.addAll(jdbcTemplate.queryForList("SELECT id FROM product WHERE category_id = ? AND deleted_at IS NULL", Long.class, categoryId));
+                pendingCategories.remove(categoryId);
+            }
+            while (!pending.isEmpty()) {
+                List<Long> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+                Iterator<Long> iterator = pending.iterator();
+                while (iterator.hasNext() && batch.size() < maxBatchSize) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                evaluate(batch);
+            }
+        }
+        catch (RuntimeException e) {
+            log.warn("Low-stock evaluation failed: {}", e.getMessage());
+        }
+    }
+
+    private void recheckLowStock() {
+        try {
+            pending.addAll(lowStockRegistry.findAllIds());
+        }
+        catch (RuntimeException e) {
+            log.warn("Low-stock recheck failed: {}", e.getMessage());
+        }
+    }
+
+    private void evaluate(final List<Long> productIds) {
+        long now = System.currentTimeMillis();
+        List<LowStockItem> items = jdbcTemplate.query(THRESHOLD_QUERY,
+                        (rs, rowNum) -> new LowStockItem(rs.getLong("id"), rs.getLong("quantity"), 0, rs.getInt("threshold"), now),
+                        defaultThreshold, productIds.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}")));
+
+        // the reservations are read after the result set is closed, in one round trip for the batch
+        Set<Long> found = new HashSet<>();
+        items.forEach(item -> found.add(item.getProductId()));
+        Map<Long, Long> reserved = found.isEmpty() ? Map.of() : reservationStore.reservedQuantities(found);
+        for (LowStockItem item : items) {
+            item.setReserved(reserved.getOrDefault(item.getProductId(), 0L));
+            if (item.getAvailable() <= item.getThreshold()) {
+                if (lowStockRegistry.put(item)) {
+                    lowStockRegistry.publish(LowStockRegistry.LOW, item);
+                    alerts.increment();
+                }
+            }
+            else if (lowStockRegistry.remove(item.getProductId())) {
+                lowStockRegistry.publish(LowStockRegistry.RECOVERED, item);
+                alerts.increment();
+            }
+        }
+
+        for (Long productId : productIds) {
+            if (!found.contains(productId)) {
+                lowStockRegistry.remove(productId);
+            }
+        }
+        evaluations.increment(productIds.size());
+    }
+
+    private static void afterCommit(final Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        }
+        else {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.LowStockItem;
+
+import java.util.List;
+
+/**
+ * The products currently low on stock, ordered by available quantity, and the alerts raised when a product becomes
+ * low on stock or recovers. Follows {@code intergamma.reservation.store}: Redis by default, in memory for the
+ * embedded store.
+ */
+public interface LowStockRegistry {
+
+    String LOW = "low";
+    String RECOVERED = "recovered";
+
+    /**
+     * Registers or updates a low-stock product.
+     *
+     * @return whether the product was not registered yet
+     */
+    boolean put(LowStockItem item);
+
+    /**
+     * @return whether the product was registered
+     */
+    boolean remove(Long productId);
+
+    List<Long> findAllIds();
+
+    List<LowStockItem> findAll(int page, int size);
+
+    long count();
+
+    void publish(String type, LowStockItem item);
+}
@@ -0,0 +1,201 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of the existing product codes, so creating a product with a new code usually skips the lookup by
+ * code. A code the filter doesn't contain is certainly new; otherwise the product is looked up. The unique
+ * constraint on the code remains the final guard, for codes inserted by another instance.
+ * <p>
+ * Codes of deleted products can't be removed from a Bloom filter, so the filter is rebuilt from the {@code code}
+ * column once deletions exceed {@code intergamma.product-code-filter.rebuild-deletion-ratio} of the codes, or the
+ * number of codes outgrows the size of the filter.
+ */
+@Service
+public class ProductCodeFilter {
+
+    private final Logger log = LoggerFactory.getLogger(ProductCodeFilter.class);
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final double falsePositiveProbability;
+    private final long minExpectedCodes;
+    private final double rebuildDeletionRatio;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private final LongAdder deletions = new LongAdder();
+    private volatile Instant lastRebuild;
+    private volatile long lastRebuildMs;
+
+    private final Counter definitelyNew;
+    private final Counter falsePositives;
+    private final Counter existing;
+    private final Timer rebuildTimer;
+
+    public ProductCodeFilter(
+                    final ProductRepository productRepository,
+                    final JdbcTemplate jdbcTemplate,
+                    final PlatformTransactionManager transactionManager,
+                    final MeterRegistry meterRegistry,
+                    @Value("${intergamma.product-code-filter.false-positive-probability}") final double falsePositiveProbability,
+                    @Value("${intergamma.product-code-filter.min-expected-codes}") final long minExpectedCodes,
+                    @Value("${intergamma.product-code-filter.rebuild-deletion-ratio}") final double rebuildDeletionRatio) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.minExpectedCodes = minExpectedCodes;
+        this.rebuildDeletionRatio = rebuildDeletionRatio;
+
+        this.definitelyNew = checkCounter(meterRegistry, "definitely-new");
+        this.falsePositives = checkCounter(meterRegistry, "false-positive");
+        this.existing = checkCounter(meterRegistry, "exists");
+        this.rebuildTimer = Timer.builder("inventory.product-code-filter.rebuild")
+                        .description("Time to rebuild the product code filter from the database")
+                        .register(meterRegistry);
+        Gauge.builder("inventory.product-code-filter.false-positive-rate", this, ProductCodeFilter::observedFalsePositiveRate)
+                        .description("Share of lookups for new product codes the filter didn't rule out")
+                        .register(meterRegistry);
+        Gauge.builder("inventory.product-code-filter.expected-false-positive-probability", this,
+                                        codeFilter -> codeFilter.filter != null ? codeFilter.filter.expectedFalsePositiveProbability() : 1)
+                        .description("False positive probability at the current fill of the filter")
+                        .register(meterRegistry);
+    }
+
+    /**
+     * Whether a product with the code exists, looking it up only when the filter can't rule it out. Before the first
+     * build every code is looked up.
+     */
+    public boolean exists(final String code) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(code)) {
+            definitelyNew.increment();
+            return false;
+        }
+        boolean exists = productRepository.findProductByCode(code) != null;
+        if (current != null) {
+            (exists ? existing : falsePositives).increment();
+        }
+        return exists;
+    }
+
+    public void add(final String code) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(code);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(code);
+        }
+    }
+
+    public void addAll(final Collection<String> codes) {
+        codes.forEach(this::add);
+    }
+
+    public void removed() {
+        deletions.increment();
+    }
+
+    /**
+     * Builds the filter at startup and rebuilds it when deletions or growth have degraded it.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${intergamma.product-code-filter.rebuild-check-interval-ms}")
+    public void rebuildIfDegraded() {
+        BloomFilter current = filter;
+        if (current == null
+                        || deletions.sum() > current.insertions() * rebuildDeletionRatio
+                        || current.insertions() > current.expectedInsertions()) {
+            try {
+                rebuild();
+            }
+            catch (RuntimeException e) {
+                log.warn("Rebuilding the product code filter failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM product WHERE deleted_at IS NULL", Long.class);
+            BloomFilter next = new BloomFilter(Math.max(minExpectedCodes, 2 * (count != null ? count : 0)), falsePositiveProbability);
+            building = next;
+            long deletionsBefore = deletions.sum();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("SELECT code FROM product WHERE deleted_at IS NULL");
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> next.put(rs.getString(1)));
+            filter = next;
+            deletions.add(-deletionsBefore);
+        });
+        building = null;
+        lastRebuildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastRebuild = Instant.now();
+        rebuildTimer.record(lastRebuildMs, TimeUnit.MILLISECONDS);
+        log.info("Rebuilt product code filter with {} codes in {} ms", filter.insertions(), lastRebuildMs);
+    }
+
+    public Map<String, Object> statistics() {
+        BloomFilter current = filter;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("built", current != null);
+        if (current != null) {
+            result.put("codes", current.insertions());
+            result.put("expectedCodes", current.expectedInsertions());
+            result.put("bits", current.bits());
+            result.put("hashFunctions", current.hashFunctions());
+            result.put("expectedFalsePositiveProbability", current.expectedFalsePositiveProbability());
+        }
+        result.put("configuredFalsePositiveProbability", falsePositiveProbability);
+        result.put("definitelyNew", (long) definitelyNew.count());
+        result.put("falsePositives", (long) falsePositives.count());
+        result.put("existing", (long) existing.count());
+        result.put("observedFalsePositiveRate", observedFalsePositiveRate());
+        result.put("deletionsSinceRebuild", deletions.sum());
+        result.put("lastRebuild", lastRebuild);
+        result.put("lastRebuildMs", lastRebuildMs);
+        return result;
+    }
+
+    private double observedFalsePositiveRate() {
+        double newCodes = definitelyNew.count() + falsePositives.count();
+        return newCodes > 0 ? falsePositives.count() / newCodes : 0;
+    }
+
+    private static Counter checkCounter(final MeterRegistry meterRegistry, final String result) {
+        return Counter.builder("inventory.product-code-filter.checks")
+                        .description("Product code existence checks by outcome")
+                        .tag("result", result)
+                        .register(meterRegistry);
+    }
+}
@@ -0,0 +1,249 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.config.RequestTiming;
+import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads products by id, sharing one in-flight query between concurrent requests for the same id and fetching
+ * distinct ids that arrive within the batch window with a single {@code WHERE id IN (...)} query. A lookup while no
+ * other query is queued or running doesn't wait for the window: {@link #load} queries right away on the calling
+ * thread, {@link #loadAsync} on a loader thread.
+ * <p>
+ * Catalog lookups ({@link #load}, {@link #loadAsync}) run in read-only transactions and are routed to a replica.
+ * Reservation admission must check against the current stock, so {@link #loadFromPrimary} batches separately and reads
+ * the primary. Queries on a loader thread run in a transaction of their own. A query on the calling thread joins the
+ * transaction of the caller, if any, rather than taking a second pooled connection while the caller holds one: with
+ * all connections held by callers waiting for a second, the pool would stall. Loaded products are shared between the
+ * waiting callers and must be treated as read-only.
+ */
+@Service
+public class ProductLoader {
+
+    private final Logger log = LoggerFactory.getLogger(ProductLoader.class);
+
+    private final ProductRepository productRepository;
+    private final Batcher replica;
+    private final Batcher primary;
+
+    private final ScheduledExecutorService executor;
+    private final long batchWindowMicros;
+    private final int maxBatchSize;
+
+    private final Counter queuedRequests;
+    private final Counter coalescedRequests;
+    private final DistributionSummary batchSize;
+
+    public ProductLoader(
+                    final ProductRepository productRepository,
+                    final PlatformTransactionManager transactionManager,
+                    final MeterRegistry meterRegistry,
+                    @Value("${intergamma.product-loader.batch-window-ms}") final long batchWindowMs,
+                    @Value("${intergamma.product-loader.max-batch-size}") final int maxBatchSize,
+                    @Value("${intergamma.product-loader.threads}") final int threads) {
+        this.productRepository = productRepository;
+        this.replica = new Batcher(transactionManager, true);
+        this.primary = new Batcher(transactionManager, false);
+        this.batchWindowMicros = TimeUnit.MILLISECONDS.toMicros(batchWindowMs);
+        this.maxBatchSize = maxBatchSize;
+        this.executor = Executors.newScheduledThreadPool(threads, new LoaderThreadFactory());
+
+        this.queuedRequests = Counter.builder("inventory.product.loader.requests")
+                        .description("Product lookups through the loader")
+                        .tag("coalesced", "false")
+                        .register(meterRegistry);
+        this.coalescedRequests = Counter.builder("inventory.product.loader.requests")
+                        .description("Product lookups through the loader")
+                        .tag("coalesced", "true")
+                        .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("inventory.product.loader.batch.size")
+                        .description("Number of distinct product ids fetched per query")
+                        .register(meterRegistry);
+    }
+
+    public Optional<Product> load(final Long id) {
+        return await(lookup(replica, id, true));
+    }
+
+    public CompletableFuture<Optional<Product>> loadAsync(final Long id) {
+        return lookup(replica, id, false);
+    }
+
+    /**
+     * Loads the product from the primary, for decisions such as reservation admission that can't be taken on stock a
+     * replica may not have replayed yet. Joins the transaction of the caller, which must not be read-only.
+     */
+    public Optional<Product> loadFromPrimary(final Long id) {
+        return await(lookup(primary, id, true));
+    }
+
+    private static Optional<Product> await(final CompletableFuture<Optional<Product>> future) {
+        if (future.isDone()) {
+            return join(future);
+        }
+        // the query runs on a loader thread, count the wait for it
+        long start = System.nanoTime();
+        try {
+            return join(future);
+        }
+        finally {
+            RequestTiming.database(start);
+        }
+    }
+
+    private CompletableFuture<Optional<Product>> lookup(final Batcher batcher, final Long id, final boolean inline) {
+        CompletableFuture<Optional<Product>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<Product>> existing = batcher.inFlight.putIfAbsent(id, future);
+        if (existing != null) {
+            coalescedRequests.increment();
+            return existing;
+        }
+        queuedRequests.increment();
+
+        synchronized (batcher) {
+            if (!batcher.pending.isEmpty() || batcher.running > 0) {
+                batcher.pending.add(id);
+                if (batcher.pending.size() >= maxBatchSize) {
+                    executor.execute(() -> flush(batcher));
+                }
+                else if (batcher.pending.size() == 1) {
+                    executor.schedule(() -> flush(batcher), batchWindowMicros, TimeUnit.MICROSECONDS);
+                }
+                return future;
+            }
+            // nothing to batch with, don't wait for the window
+            batcher.running++;
+        }
+        List<Long> batch = List.of(id);
+        if (inline) {
+            query(batcher, batch, batcher.inlineTransaction);
+        }
+        else {
+            executor.execute(() -> query(batcher, batch, batcher.loaderTransaction));
+        }
+        return future;
+    }
+
+    private void flush(final Batcher batcher) {
+        List<Long> batch;
+        synchronized (batcher) {
+            if (batcher.pending.isEmpty()) {
+                return;
+            }
+            batch = batcher.pending;
+            batcher.pending = new ArrayList<>();
+            batcher.running++;
+        }
+        query(batcher, batch, batcher.loaderTransaction);
+    }
+
+    private void query(final Batcher batcher, final List<Long> batch, final TransactionTemplate transaction) {
+        batchSize.record(batch.size());
+        try {
+            Map<Long, Product> products = transaction.execute(status -> productRepository.findAllWithSupplierAndCategoryByIdIn(batch))
+                            .stream()
+                            .collect(Collectors.toMap(Product::getId, Function.identity()));
+            for (Long id : batch) {
+                batcher.complete(id, future -> future.complete(Optional.ofNullable(products.get(id))));
+            }
+        }
+        catch (RuntimeException e) {
+            log.warn("Loading products {} failed", batch, e);
+            for (Long id : batch) {
+                batcher.complete(id, future -> future.completeExceptionally(e));
+            }
+        }
+        finally {
+            synchronized (batcher) {
+                batcher.running--;
+            }
+        }
+    }
+
+    private static Optional<Product> join(final CompletableFuture<Optional<Product>> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * The in-flight and pending lookups of one kind of transaction, guarded by the batcher itself.
+     */
+    private static final class Batcher {
+
+        private final Map<Long, CompletableFuture<Optional<Product>>> inFlight = new ConcurrentHashMap<>();
+        private List<Long> pending = new ArrayList<>();
+        private int running;
+
+        private final TransactionTemplate loaderTransaction;
+        private final TransactionTemplate inlineTransaction;
+
+        private Batcher(final PlatformTransactionManager transactionManager, final boolean readOnly) {
+            this.loaderTransaction = new TransactionTemplate(transactionManager);
+            this.loaderTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.loaderTransaction.setReadOnly(readOnly);
+            // a caller holds on to the connection of its transaction, a transaction of its own would take a second one;
+            // without a caller transaction a read-write one is needed to reach the primary
+            this.inlineTransaction = new TransactionTemplate(transactionManager);
+            this.inlineTransaction.setPropagationBehavior(readOnly ? TransactionDefinition.PROPAGATION_SUPPORTS : TransactionDefinition.PROPAGATION_REQUIRED);
+            this.inlineTransaction.setReadOnly(readOnly);
+        }
+
+        private void complete(final Long id, final Consumer<CompletableFuture<Optional<Product>>> completion) {
+            CompletableFuture<Optional<Product>> future = inFlight.remove(id);
+            if (future != null) {
+                completion.accept(future);
+            }
+        }
+    }
+
+    private static final class LoaderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, "product-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.intergamma.inventory.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intergamma.inventory.jfr.CacheAccessEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the serialized JSON of single products and product list pages, optionally pre-gzipped, so hot catalog reads
+ * are served without loading or serializing entities. Both caches evict the least recently used entries beyond
+ * {@code max-entries} or {@code max-size-mb} of JSON; a single representation larger than a cache segment isn't cached.
+ * <p>
+ * Writes evict the affected entries once their transaction commits. Every eviction also bumps a generation counter,
+ * so a read that started before the eviction never puts its (possibly stale) bytes into the cache.
+ */
+@Service
+public class ProductRepresentationCache {
+
+    private final ObjectMapper objectMapper;
+
+    private static final int PRODUCT_SEGMENTS = 16;
+
+    private final LruCache<Long> products;
+    private final LruCache<String> pages;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final boolean enabled;
+    private final boolean gzip;
+    private final Executor replicaLagDelay;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ProductRepresentationCache(
+                    final ObjectMapper objectMapper,
+                    final MeterRegistry meterRegistry,
+                    @Value("${intergamma.product-cache.enabled}") final boolean enabled,
+                    @Value("${intergamma.product-cache.gzip}") final boolean gzip,
+                    @Value("${intergamma.product-cache.max-entries}") final int maxEntries,
+                    @Value("${intergamma.product-cache.max-size-mb}") final long maxSizeMb,
+                    @Value("${intergamma.datasource.replicas[0].url:}") final String replicaUrl,
+                    @Value("${intergamma.datasource.max-replica-lag-ms}") final long maxReplicaLagMs) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.replicaLagDelay = StringUtils.hasText(replicaUrl)
+                        ? CompletableFuture.delayedExecutor(maxReplicaLagMs, TimeUnit.MILLISECONDS)
+                        : null;
+
+        this.hits = Counter.builder("inventory.product.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("inventory.product.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("inventory.product.cache.evictions")
+                        .description("Representations evicted as least recently used")
+                        .register(meterRegistry);
+
+        // pages are larger and fewer, they get a quarter of the bytes in one segment
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        this.products = new LruCache<>(PRODUCT_SEGMENTS, maxEntries, maxBytes - maxBytes / 4, evictions);
+        this.pages = new LruCache<>(1, maxEntries, maxBytes / 4, evictions);
+
+        Gauge.builder("inventory.product.cache.entries", products, LruCache::size)
+                        .description("Cached product representations")
+                        .register(meterRegistry);
+        Gauge.builder("inventory.product.cache.bytes", this, cache -> cache.products.bytes() + cache.pages.bytes())
+                        .description("Bytes of cached product and page representations")
+                        .register(meterRegistry);
+    }
+
+    public Optional<Representation> getProduct(final Long id, final Supplier<Optional<?>> loader) {
+        return get(products, id, loader);
+    }
+
+    public Optional<Representation> getPage(final String pageKey, final Supplier<Optional<?>> loader) {
+        return get(pages, pageKey, loader);
+    }
+
+    public void evictProduct(final Long id) {
+        evict(() -> {
+            products.remove(id);
+            pages.clear();
+        });
+    }
+
+    public void evictProducts(final Collection<Long> ids) {
+        evict(() -> {
+            products.removeAll(ids);
+            pages.clear();
+        });
+    }
+
+    /**
+     * Evicts what changed in the database, by another node or outside the API. Products embed their supplier and
+     * category, so a change of either evicts everything.
+     */
+    @EventListener
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        if (event.isProduct() && !event.isAll()) {
+            evictProducts(event.getIds());
+        }
+        else {
+            evictAll();
+        }
+    }
+
+    public void evictPages() {
+        evict(pages::clear);
+    }
+
+    public void evictAll() {
+        evict(() -> {
+            products.clear();
+            pages.clear();
+        });
+    }
+
+    private <K> Optional<Representation> get(final LruCache<K> cache, final K key, final Supplier<Optional<?>> loader) {
+        if (!enabled) {
+            return loader.get().map(this::serialize);
+        }
+
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        Representation cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            commit(event, key, true);
+            return Optional.of(cached);
+        }
+        misses.increment();
+
+        long generationAtLoad = generation.get();
+        Optional<Representation> loaded = loader.get().map(this::serialize);
+        if (loaded.isPresent() && generation.get() == generationAtLoad) {
+            cache.put(key, loaded.get());
+            if (generation.get() != generationAtLoad) {
+                cache.remove(key, loaded.get());
+            }
+        }
+        commit(event, key, false);
+
+        return loaded;
+    }
+
+    private static void commit(final CacheAccessEvent event, final Object key, final boolean hit) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = "product-representation";
+            event.key = String.valueOf(key);
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    private void evict(final Runnable eviction) {
+        generation.incrementAndGet();
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    generation.incrementAndGet();
+                    eviction.run();
+                    evictAfterReplicaLag(eviction);
+                }
+            });
+        }
+        else {
+            evictAfterReplicaLag(eviction);
+        }
+    }
+
+    /**
+     * Reads served by a lagging replica may still see the old rows, so evict once more when the replicas have caught up.
+     */
+    private void evictAfterReplicaLag(final Runnable eviction) {
+        if (replicaLagDelay != null) {
+            replicaLagDelay.execute(() -> {
+                generation.incrementAndGet();
+                eviction.run();
+            });
+        }
+    }
+
+    private Representation serialize(final Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new Representation(json, gzip ? gzip(json) : null);
+        }
+        catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(final byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(json);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static final class Representation {
+
+        private final byte[] json;
+        private final byte[] gzippedJson;
+
+        private Representation(final byte[] json, final byte[] gzippedJson) {
+            this.json = json;
+            this.gzippedJson = gzippedJson;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzippedJson() {
+            return gzippedJson;
+        }
+
+        public boolean isGzipped() {
+            return gzippedJson != null;
+        }
+
+        private long weight() {
+            return json.length + (gzippedJson != null ? gzippedJson.length : 0);
+        }
+    }
+
+    /**
+     * An LRU cache bounded by entries and bytes, split into segments with a lock and a share of the bounds each, so
+     * reads of different keys rarely contend.
+     */
+    private static final class LruCache<K> {
+
+        private final List<Segment<K>> segments;
+
+        private LruCache(final int segmentCount, final int maxEntries, final long maxBytes, final Counter evictions) {
+            this.segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(new Segment<>(Math.max(1, maxEntries / segmentCount), maxBytes / segmentCount, evictions));
+            }
+        }
+
+        private Representation get(final K key) {
+            return segment(key).get(key);
+        }
+
+        private void put(final K key, final Representation value) {
+            segment(key).put(key, value);
+        }
+
+        private void remove(final K key) {
+            segment(key).remove(key);
+        }
+
+        private void remove(final K key, final Representation value) {
+            segment(key).remove(key, value);
+        }
+
+        private void removeAll(final Collection<K> keys) {
+            keys.forEach(this::remove);
+        }
+
+        private void clear() {
+            for (Segment<K> segment : segments) {
+                segment.clear();
+            }
+        }
+
+        private int size() {
+            int size = 0;
+            for (Segment<K> segment : segments) {
+                size += segment.size();
+            }
+            return size;
+        }
+
+        private long bytes() {
+            long bytes = 0;
+            for (Segment<K> segment : segments) {
+                bytes += segment.bytes();
+            }
+            return bytes;
+        }
+
+        private Segment<K> segment(final K key) {
+            return segments.get((key.hashCode() & Integer.MAX_VALUE) % segments.size());
+        }
+    }
+
+    private static final class Segment<K> {
+
+        private final LinkedHashMap<K, Representation> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+        private final long maxBytes;
+        private final Counter evictions;
+        private long bytes;
+
+        private Segment(final int maxEntries, final long maxBytes, final Counter evictions) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            this.evictions = evictions;
+        }
+
+        private synchronized Representation get(final K key) {
+            return entries.get(key);
+        }
+
+        private synchronized void put(final K key, final Representation value) {
+            if (value.weight() > maxBytes) {
+                return;
+            }
+            Representation previous = entries.put(key, value);
+            bytes += value.weight() - (previous != null ? previous.weight() : 0);
+
+            Iterator<Map.Entry<K, Representation>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                bytes -= eldest.next().getValue().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        private synchronized void remove(final K key) {
+            Representation removed = entries.remove(key);
+            if (removed != null) {
+                bytes -= removed.weight();
+            }
+        }
+
+        private synchronized void remove(final K key, final Representation value) {
+            if (entries.remove(key, value)) {
+                bytes -= value.weight();
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.LowStockItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the low-stock products in a sorted set scored by available quantity, with their details in a hash, and
+ * appends alerts to a Redis stream capped at {@code intergamma.low-stock.stream-max-length} entries. The keys share
+ * the {@code {low-stock}} hash tag so they live on one shard in a cluster.
+ */
+@Component
+@ConditionalOnProperty(name = "intergamma.reservation.store", havingValue = "redis", matchIfMissing = true)
+public class RedisLowStockRegistry implements LowStockRegistry {
+
+    static final String ITEMS_KEY = "{low-stock}:items";
+    static final String DETAILS_KEY = "{low-stock}:details";
+    static final String ALERTS_KEY = "{low-stock}:alerts";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${intergamma.low-stock.stream-max-length}")
+    private long streamMaxLength;
+
+    public RedisLowStockRegistry(final StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public boolean put(final LowStockItem item) {
+        String productId = item.getProductId().toString();
+        LowStockItem existing = toItem(productId, (String) redisTemplate.opsForHash().get(DETAILS_KEY, productId));
+        long since = existing != null ? Math.min(existing.getSince(), item.getSince()) : item.getSince();
+        redisTemplate.opsForHash().put(DETAILS_KEY, productId,
+                        item.getQuantity() + ":" + item.getReserved() + ":" + item.getThreshold() + ":" + since);
+        Boolean added = redisTemplate.opsForZSet().add(ITEMS_KEY, productId, item.getAvailable());
+        return Boolean.TRUE.equals(added);
+    }
+
+    @Override
+    public boolean remove(final Long productId) {
+        Long removed = redisTemplate.opsForZSet().remove(ITEMS_KEY, productId.toString());
+        redisTemplate.opsForHash().delete(DETAILS_KEY, productId.toString());
+        return removed != null && removed > 0;
+    }
+
+    @Override
+    public List<Long> findAllIds() {
+        Set<String> members = redisTemplate.opsForZSet().range(ITEMS_KEY, 0, -1);
+        return members == null ? new ArrayList<>() : members.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<LowStockItem> findAll(final int page, final int size) {
+        long start = (long) page * size;
+        Set<String> members = redisTemplate.opsForZSet().range(ITEMS_KEY, start, start + size - 1);
+        if (members == null || members.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Object> productIds = new ArrayList<>(members);
+        List<Object> details = redisTemplate.opsForHash().multiGet(DETAILS_KEY, productIds);
+        List<LowStockItem> items = new ArrayList<>(members.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            LowStockItem item = toItem((String) productIds.get(i), (String) details.get(i));
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public long count() {
+        Long count = redisTemplate.opsForZSet().zCard(ITEMS_KEY);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public void publish(final String type, final LowStockItem item) {
+        Map<String, String> alert = new LinkedHashMap<>();
+        alert.put("type", type);
+        alert.put("productId", item.getProductId().toString());
+        alert.put("quantity", Long.toString(item.getQuantity()));
+        alert.put("reserved", Long.toString(item.getReserved()));
+        alert.put("available", Long.toString(item.getAvailable()));
+        alert.put("threshold", Integer.toString(item.getThreshold()));
+        redisTemplate.opsForStream().add(StreamRecords.string(alert).withStreamKey(ALERTS_KEY));
+        redisTemplate.opsForStream().trim(ALERTS_KEY, streamMaxLength, true);
+    }
+
+    private static LowStockItem toItem(final String productId, final String details) {
+        if (details == null) {
+            return null;
+        }
+        String[] parts = details.split(":");
+        return new LowStockItem(Long.valueOf(productId), Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+    }
+}
@@ -0,0 +1,552 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Reservation;
+import com.intergamma.inventory.jfr.RedisCommandEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the reservations of a product in one Redis hash, {@code reservation:{productId}}, with a
+ * {@code supplierId:sessionId} field per reservation and {@code quantity:expiresAtMillis} values.
+ * <p>
+ * The braces make the product id the hash tag, so in a Redis Cluster everything about a product lives on one shard
+ * and admission runs as a single-key Lua script. Expired fields are pruned by that script, the hash itself expires
+ * once its newest reservation has. Listing all reservations scans every master in parallel.
+ * <p>
+ * Each session also has a cart, {@code cart:{sessionId}}, with a {@code productId:supplierId} field per reservation.
+ * Reading or releasing a cart updates the product hashes of its reservations; outside a cluster that is one Lua
+ * script over the cart and the product hashes of its fields, in a cluster the cart and product hashes live on
+ * different shards and are updated one by one. A reservation only slides the expiry of the cart key itself.
+ */
+@Component
+@ConditionalOnProperty(name = "intergamma.reservation.store", havingValue = "redis", matchIfMissing = true)
+public class RedisReservationStore implements ReservationStore {
+
+    private static final String KEY_PREFIX = "reservation:";
+    private static final String CART_PREFIX = "cart:";
+    private static final int SCAN_COUNT = 1000;
+    private static final RedisScript<Long> RESERVE_SCRIPT = RedisScript.of(new ClassPathResource("redis/reserve.lua"), Long.class);
+    private static final RedisScript<List<Object>> RESERVE_BATCH_SCRIPT = listScript("redis/reserve-batch.lua");
+    private static final RedisScript<List<Object>> TOUCH_CART_SCRIPT = listScript("redis/touch-cart.lua");
+    private static final RedisScript<List<Object>> RELEASE_CART_SCRIPT = listScript("redis/release-cart.lua");
+    private static final RedisScript<String> TOUCH_SCRIPT = RedisScript.of(new ClassPathResource("redis/touch.lua"), String.class);
+    private static final RedisScript<String> RELEASE_SCRIPT = RedisScript.of(new ClassPathResource("redis/release.lua"), String.class);
+
+    private static final String REDIS_COMMAND_TIMER = "inventory.redis.command";
+    private static final String REDIS_KEYS_SCANNED = "inventory.redis.keys.scanned";
+    private static final Map<String, List<String>> OPERATIONS_BY_COMMAND = Map.of(
+                    "evalsha", List.of("reserve", "save", "save-if-absent", "reserve-batch", "touch-cart", "touch", "release-cart", "release"),
+                    "hget", List.of("session-supplier-product"),
+                    "hgetall", List.of("supplier-product"),
+                    "hvals", List.of("product", "products"),
+                    "hkeys", List.of("touch-cart", "release-cart"),
+                    "scan", List.of("all", "totals"));
+
+    private final StringRedisTemplate redisTemplate;
+    private final long ttlMs;
+    private final boolean cluster;
+    private final ExecutorService fanOutExecutor;
+    private final Map<String, Map<String, Timer>> redisTimers = new HashMap<>();
+    private final DistributionSummary keysScanned;
+
+    public RedisReservationStore(
+                    final StringRedisTemplate redisTemplate,
+                    final MeterRegistry meterRegistry,
+                    @Value("${spring.redis.ttl}") final long ttlSeconds,
+                    @Value("${spring.redis.cluster.nodes:}") final String clusterNodes,
+                    @Value("${intergamma.reservation.redis.fan-out-threads}") final int fanOutThreads) {
+        this.redisTemplate = redisTemplate;
+        this.ttlMs = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.cluster = StringUtils.hasText(clusterNodes);
+        this.fanOutExecutor = Executors.newFixedThreadPool(fanOutThreads, runnable -> {
+            Thread thread = new Thread(runnable, "reservation-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        OPERATIONS_BY_COMMAND.forEach((command, operations) -> {
+            Map<String, Timer> timers = new HashMap<>();
+            operations.forEach(operation -> timers.put(operation, Timer.builder(REDIS_COMMAND_TIMER)
+                            .description("Latency of Redis commands issued by the reservation store")
+                            .tag("command", command)
+                            .tag("operation", operation)
+                            .publishPercentileHistogram()
+                            .register(meterRegistry)));
+            redisTimers.put(command, timers);
+        });
+        this.keysScanned = DistributionSummary.builder(REDIS_KEYS_SCANNED)
+                        .description("Number of Redis keys returned by a key scan")
+                        .tag("operation", "all")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+    }
+
+    @Override
+    public boolean reserve(final Reservation reservation, final int stock) {
+        return admit(reservation, stock, false, "reserve");
+    }
+
+    /**
+     * Decides the whole batch with one script on the hash of the product.
+     */
+    @Override
+    public List<Boolean> reserveAll(final List<Reservation> reservations, final int stock) {
+        List<String> keys = new ArrayList<>(reservations.size() + 1);
+        keys.add(key(reservations.get(0).getProductId()));
+        List<String> args = new ArrayList<>(3 * reservations.size() + 3);
+        args.add(Long.toString(System.currentTimeMillis()));
+        args.add(Integer.toString(stock));
+        args.add(Long.toString(ttlMs));
+        for (Reservation reservation : reservations) {
+            if (!cluster) {
+                keys.add(cartKey(reservation.getSessionId()));
+            }
+            args.add(field(reservation.getSupplierId(), reservation.getSessionId()));
+            args.add(reservation.getQuantity().toString());
+            args.add(cartField(reservation.getProductId(), reservation.getSupplierId()));
+        }
+        List<?> result = redis("evalsha", "reserve-batch", reservations.size(), () -> redisTemplate.execute(RESERVE_BATCH_SCRIPT, keys, args.toArray()));
+
+        List<Boolean> admitted = new ArrayList<>(reservations.size());
+        for (int i = 0; i < reservations.size(); i++) {
+            boolean isAdmitted = result != null && i < result.size() && Long.valueOf(1L).equals(result.get(i));
+            admitted.add(isAdmitted);
+            if (isAdmitted && cluster) {
+                Reservation reservation = reservations.get(i);
+                String cartKey = cartKey(reservation.getSessionId());
+                redisTemplate.opsForHash().put(cartKey, cartField(reservation.getProductId(), reservation.getSupplierId()),
+                                reservation.getQuantity().toString());
+                redisTemplate.expire(cartKey, ttlMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        return admitted;
+    }
+
+    @Override
+    public void save(final Reservation reservation) {
+        admit(reservation, -1, false, "save");
+    }
+
+    /**
+     * Saves the reservation unless its session already holds a live reservation of the same product and supplier.
+     *
+     * @return whether the reservation was saved
+     */
+    public boolean saveIfAbsent(final Reservation reservation) {
+        return admit(reservation, -1, true, "save-if-absent");
+    }
+
+    @Override
+    public Optional<Reservation> find(final String sessionId, final Long supplierId, final Long productId) {
+        String value = redis("hget", "session-supplier-product", () -> (String) redisTemplate.opsForHash()
+                        .get(key(productId), field(supplierId, sessionId)));
+        return Optional.ofNullable(toReservation(productId, field(supplierId, sessionId), value, System.currentTimeMillis()));
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        List<Reservation> reservations = redis("scan", "all", () -> redisTemplate.execute((RedisCallback<List<Reservation>>) connection -> {
+            if (connection instanceof RedisClusterConnection) {
+                return fanOut((RedisClusterConnection) connection);
+            }
+            return scanAndRead(connection, connection.scan(scanOptions()));
+        }));
+        return reservations != null ? reservations : new ArrayList<>();
+    }
+
+    @Override
+    public List<Reservation> findBySupplierAndProduct(final Long supplierId, final Long productId) {
+        Map<Object, Object> fields = redis("hgetall", "supplier-product", () -> redisTemplate.opsForHash().entries(key(productId)));
+        String prefix = supplierId + ":";
+        long now = System.currentTimeMillis();
+        return fields.entrySet().stream()
+                        .filter(entry -> ((String) entry.getKey()).startsWith(prefix))
+                        .map(entry -> toReservation(productId, (String) entry.getKey(), (String) entry.getValue(), now))
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+    }
+
+    @Override
+    public long reservedQuantity(final Long productId) {
+        List<Object> values = redis("hvals", "product", () -> redisTemplate.opsForHash().values(key(productId)));
+        return reserved(values, System.currentTimeMillis());
+    }
+
+    /**
+     * Reads the product hashes in one pipeline, or in a cluster, where they live on different shards, in parallel.
+     */
+    @Override
+    public Map<Long, Long> reservedQuantities(final Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        List<?> values = redis("hvals", "products", ids.size(), () -> {
+            if (cluster) {
+                List<CompletableFuture<List<Object>>> futures = ids.stream()
+                                .map(id -> CompletableFuture.supplyAsync(() -> redisTemplate.opsForHash().values(key(id)), fanOutExecutor))
+                                .collect(Collectors.toList());
+                return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+            }
+            return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long id : ids) {
+                    connection.hashCommands().hVals(key(id).getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        });
+
+        long now = System.currentTimeMillis();
+        Map<Long, Long> reserved = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object productValues = values.get(i);
+            reserved.put(ids.get(i), productValues instanceof List ? reserved((List<?>) productValues, now) : 0L);
+        }
+        return reserved;
+    }
+
+    /**
+     * Scans the product hashes by key only and sums their live reservations per product with {@link #reservedQuantities},
+     * a batch of keys at a time, so no reservation is read as a whole.
+     */
+    @Override
+    public Map<Long, Long> reservedTotals() {
+        List<Long> productIds = redis("scan", "totals", () -> redisTemplate.execute((RedisCallback<List<Long>>) connection -> {
+            if (connection instanceof RedisClusterConnection) {
+                RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+                List<CompletableFuture<List<Long>>> shards = new ArrayList<>();
+                for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        shards.add(CompletableFuture.supplyAsync(() -> scanProductIds(clusterConnection.scan(node, scanOptions())), fanOutExecutor));
+                    }
+                }
+                return shards.stream().map(CompletableFuture::join).flatMap(List::stream).collect(Collectors.toList());
+            }
+            return scanProductIds(connection.scan(scanOptions()));
+        }));
+
+        Map<Long, Long> totals = new HashMap<>();
+        if (productIds == null) {
+            return totals;
+        }
+        for (int from = 0; from < productIds.size(); from += SCAN_COUNT) {
+            reservedQuantities(productIds.subList(from, Math.min(from + SCAN_COUNT, productIds.size()))).forEach((productId, reserved) -> {
+                if (reserved > 0) {
+                    totals.put(productId, reserved);
+                }
+            });
+        }
+        return totals;
+    }
+
+    private static long reserved(final List<?> values, final long now) {
+        long reserved = 0;
+        for (Object value : values) {
+            String quantityAndExpiry = (String) value;
+            int separator = quantityAndExpiry.indexOf(':');
+            if (separator > 0 && Long.parseLong(quantityAndExpiry.substring(separator + 1)) > now) {
+                reserved += Long.parseLong(quantityAndExpiry.substring(0, separator));
+            }
+        }
+        return reserved;
+    }
+
+    @Override
+    public List<Reservation> findBySession(final String sessionId) {
+        long now = System.currentTimeMillis();
+        Set<Object> cartItems = cartItems(sessionId, "touch-cart");
+        if (!cluster) {
+            if (cartItems.isEmpty()) {
+                return new ArrayList<>();
+            }
+            List<String> keys = cartScriptKeys(sessionId, cartItems);
+            List<String> args = new ArrayList<>(List.of(sessionId, Long.toString(now), Long.toString(ttlMs)));
+            cartItems.forEach(item -> args.add((String) item));
+            List<?> items = redis("evalsha", "touch-cart", () -> redisTemplate.execute(TOUCH_CART_SCRIPT, keys, args.toArray()));
+            return fromCartItems(sessionId, items);
+        }
+
+        List<Reservation> reservations = new ArrayList<>();
+        for (Object item : cartItems) {
+            Reservation reservation = fromCartField(sessionId, (String) item);
+            String quantity = redis("evalsha", "touch", () -> redisTemplate.execute(TOUCH_SCRIPT,
+                            Collections.singletonList(key(reservation.getProductId())),
+                            field(reservation.getSupplierId(), sessionId), Long.toString(now), Long.toString(ttlMs)));
+            if (quantity != null) {
+                reservation.setQuantity(Integer.valueOf(quantity));
+                reservations.add(reservation);
+            }
+            else {
+                redisTemplate.opsForHash().delete(cartKey(sessionId), item);
+            }
+        }
+        if (!reservations.isEmpty()) {
+            redisTemplate.expire(cartKey(sessionId), ttlMs, TimeUnit.MILLISECONDS);
+        }
+        return reservations;
+    }
+
+    @Override
+    public List<Reservation> releaseSession(final String sessionId) {
+        long now = System.currentTimeMillis();
+        Set<Object> cartItems = cartItems(sessionId, "release-cart");
+        if (!cluster) {
+            if (cartItems.isEmpty()) {
+                return new ArrayList<>();
+            }
+            List<String> keys = cartScriptKeys(sessionId, cartItems);
+            List<String> args = new ArrayList<>(List.of(sessionId, Long.toString(now)));
+            cartItems.forEach(item -> args.add((String) item));
+            List<?> items = redis("evalsha", "release-cart", () -> redisTemplate.execute(RELEASE_CART_SCRIPT, keys, args.toArray()));
+            return fromCartItems(sessionId, items);
+        }
+
+        // the product hashes go first, a cart left behind by a failure is released again by the next call
+        List<Reservation> reservations = new ArrayList<>();
+        for (Object item : cartItems) {
+            Reservation reservation = fromCartField(sessionId, (String) item);
+            String quantity = redis("evalsha", "release", () -> redisTemplate.execute(RELEASE_SCRIPT,
+                            Collections.singletonList(key(reservation.getProductId())),
+                            field(reservation.getSupplierId(), sessionId), Long.toString(now)));
+            if (quantity != null) {
+                reservation.setQuantity(Integer.valueOf(quantity));
+                reservations.add(reservation);
+            }
+        }
+        redisTemplate.delete(cartKey(sessionId));
+        return reservations;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    private boolean admit(final Reservation reservation, final int stock, final boolean ifAbsent, final String operation) {
+        String cartKey = cartKey(reservation.getSessionId());
+        String cartField = cartField(reservation.getProductId(), reservation.getSupplierId());
+        List<String> keys = cluster
+                        ? Collections.singletonList(key(reservation.getProductId()))
+                        : Arrays.asList(key(reservation.getProductId()), cartKey);
+        Long admitted = redis("evalsha", operation, () -> redisTemplate.execute(RESERVE_SCRIPT,
+                        keys,
+                        field(reservation.getSupplierId(), reservation.getSessionId()),
+                        reservation.getQuantity().toString(),
+                        Long.toString(System.currentTimeMillis()),
+                        Integer.toString(stock),
+                        reservation.getSupplierId() + ":",
+                        Long.toString(ttlMs),
+                        cartField,
+                        ifAbsent ? "1" : "0"));
+        if (admitted == null || admitted != 1L) {
+            return false;
+        }
+
+        if (cluster) {
+            redisTemplate.opsForHash().put(cartKey, cartField, reservation.getQuantity().toString());
+            redisTemplate.expire(cartKey, ttlMs, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * The cart followed by the product hash of every cart field, for the cart scripts to declare all keys they touch.
+     */
+    private static List<String> cartScriptKeys(final String sessionId, final Set<Object> cartItems) {
+        List<String> keys = new ArrayList<>(cartItems.size() + 1);
+        keys.add(cartKey(sessionId));
+        for (Object item : cartItems) {
+            keys.add(key(fromCartField(sessionId, (String) item).getProductId()));
+        }
+        return keys;
+    }
+
+    private Set<Object> cartItems(final String sessionId, final String operation) {
+        return redis("hkeys", operation, () -> redisTemplate.opsForHash().keys(cartKey(sessionId)));
+    }
+
+    private static List<Reservation> fromCartItems(final String sessionId, final List<?> items) {
+        List<Reservation> reservations = new ArrayList<>();
+        if (items == null) {
+            return reservations;
+        }
+        for (int i = 0; i + 1 < items.size(); i += 2) {
+            Reservation reservation = fromCartField(sessionId, (String) items.get(i));
+            reservation.setQuantity(Integer.valueOf((String) items.get(i + 1)));
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+
+    private static Reservation fromCartField(final String sessionId, final String cartField) {
+        int separator = cartField.indexOf(':');
+        Reservation reservation = new Reservation();
+        reservation.setSessionId(sessionId);
+        reservation.setProductId(Long.valueOf(cartField.substring(0, separator)));
+        reservation.setSupplierId(Long.valueOf(cartField.substring(separator + 1)));
+        return reservation;
+    }
+
+    private List<Reservation> fanOut(final RedisClusterConnection connection) {
+        List<CompletableFuture<List<Reservation>>> shards = new ArrayList<>();
+        for (RedisClusterNode node : connection.clusterGetNodes()) {
+            if (node.isMaster()) {
+                shards.add(CompletableFuture.supplyAsync(() -> scanAndRead(connection, connection.scan(node, scanOptions())), fanOutExecutor));
+            }
+        }
+        return shards.stream()
+                        .map(CompletableFuture::join)
+                        .flatMap(List::stream)
+                        .collect(Collectors.toList());
+    }
+
+    private List<Reservation> scanAndRead(final RedisConnection connection, final Cursor<byte[]> cursor) {
+        long now = System.currentTimeMillis();
+        int keys = 0;
+        List<Reservation> reservations = new ArrayList<>();
+        try (cursor) {
+            while (cursor.hasNext()) {
+                byte[] key = cursor.next();
+                keys++;
+                Long productId = productId(new String(key, StandardCharsets.UTF_8));
+                Map<byte[], byte[]> fields = connection.hGetAll(key);
+                if (fields == null) {
+                    continue;
+                }
+                for (Map.Entry<byte[], byte[]> entry : fields.entrySet()) {
+                    Reservation reservation = toReservation(productId, new String(entry.getKey(), StandardCharsets.UTF_8),
+                                    new String(entry.getValue(), StandardCharsets.UTF_8), now);
+                    if (reservation != null) {
+                        reservations.add(reservation);
+                    }
+                }
+            }
+        }
+        keysScanned.record(keys);
+        return reservations;
+    }
+
+    private List<Long> scanProductIds(final Cursor<byte[]> cursor) {
+        List<Long> productIds = new ArrayList<>();
+        try (cursor) {
+            while (cursor.hasNext()) {
+                productIds.add(productId(new String(cursor.next(), StandardCharsets.UTF_8)));
+            }
+        }
+        keysScanned.record(productIds.size());
+        return productIds;
+    }
+
+    private static Reservation toReservation(final Long productId, final String field, final String value, final long now) {
+        if (value == null) {
+            return null;
+        }
+        int fieldSeparator = field.indexOf(':');
+        int valueSeparator = value.indexOf(':');
+        if (fieldSeparator < 0 || valueSeparator < 0 || Long.parseLong(value.substring(valueSeparator + 1)) <= now) {
+            return null;
+        }
+
+        Reservation reservation = new Reservation();
+        reservation.setProductId(productId);
+        reservation.setSupplierId(Long.valueOf(field.substring(0, fieldSeparator)));
+        reservation.setSessionId(field.substring(fieldSeparator + 1));
+        reservation.setQuantity(Integer.valueOf(value.substring(0, valueSeparator)));
+        return reservation;
+    }
+
+    private static ScanOptions scanOptions() {
+        return ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(SCAN_COUNT).build();
+    }
+
+    private static String key(final Long productId) {
+        return KEY_PREFIX + "{" + productId + "}";
+    }
+
+    private static Long productId(final String key) {
+        return Long.valueOf(key.substring(key.indexOf('{') + 1, key.indexOf('}')));
+    }
+
+    private static String cartKey(final String sessionId) {
+        return CART_PREFIX + "{" + sessionId + "}";
+    }
+
+    private static String cartField(final Long productId, final Long supplierId) {
+        return productId + ":" + supplierId;
+    }
+
+    private static String field(final Long supplierId, final String sessionId) {
+        return supplierId + ":" + sessionId;
+    }
+
+    /**
+     * A script returning a multi-bulk reply, which Spring Data Redis can only be told about as a raw {@link List}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<Object>> listScript(final String path) {
+        return (RedisScript) RedisScript.of(new ClassPathResource(path), List.class);
+    }
+
+    private <T> T redis(final String command, final String operation, final Supplier<T> call) {
+        return redis(command, operation, 1, call);
+    }
+
+    /**
+     * Issues the command, recording its latency and a {@link RedisCommandEvent} for Flight Recorder.
+     */
+    private <T> T redis(final String command, final String operation, final int batchSize, final Supplier<T> call) {
+        RedisCommandEvent event = new RedisCommandEvent();
+        event.begin();
+        try {
+            return redisTimer(command, operation).record(call);
+        }
+        finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = command;
+                event.operation = operation;
+                event.batchSize = batchSize;
+                event.commit();
+            }
+        }
+    }
+
+    private Timer redisTimer(final String command, final String operation) {
+        Map<String, Timer> timers = redisTimers.get(command);
+        Timer timer = timers != null ? timers.get(operation) : null;
+        if (timer == null) {
+            throw new IllegalStateException("No timer for Redis command " + command + " of " + operation);
+        }
+        return timer;
+    }
+}
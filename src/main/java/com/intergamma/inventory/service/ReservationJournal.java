@@ -0,0 +1,186 @@
+package com.intergamma.inventory.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of reservation changes in a memory-mapped file.
+ * <p>
+ * Every record is written as {@code [length][crc32][payload]}, with the length written last, so a record torn by a
+ * crash reads back as a zero length or a checksum mismatch and ends the replay. The mapping grows in steps of the
+ * initial size when it is full. Not thread-safe, callers synchronise.
+ */
+final class ReservationJournal implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+    /** Slides the expiry of every reservation of the session that was live when touched, product and supplier are unused. */
+    static final byte TOUCH = 3;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final int growthSize;
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    ReservationJournal(final Path path, final int growthSize) throws IOException {
+        this.path = path;
+        this.growthSize = growthSize;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        open();
+    }
+
+    /**
+     * Replays all complete records from the start of the journal and positions the journal after the last one.
+     */
+    void replay(final Consumer<Record> consumer) {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > MAX_PAYLOAD_SIZE || offset + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            int checksum = buffer.getInt(offset + 4);
+            byte[] bytes = new byte[length];
+            buffer.position(offset + HEADER_SIZE);
+            buffer.get(bytes);
+            crc.reset();
+            crc.update(bytes);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            consumer.accept(Record.decode(ByteBuffer.wrap(bytes)));
+            offset += HEADER_SIZE + length;
+        }
+        position = offset;
+    }
+
+    void append(final Record record) throws IOException {
+        payload.clear();
+        record.encode(payload);
+        payload.flip();
+        int length = payload.remaining();
+
+        ensureCapacity(HEADER_SIZE + length);
+        crc.reset();
+        crc.update(payload.array(), 0, length);
+
+        buffer.position(position + HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, length);
+        position += HEADER_SIZE + length;
+    }
+
+    /**
+     * Replaces the journal with one containing only the given records, written to a new file and moved into place.
+     */
+    void rewrite(final Iterable<Record> records) throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        Files.deleteIfExists(compacted);
+        try (ReservationJournal journal = new ReservationJournal(compacted, growthSize)) {
+            for (Record record : records) {
+                journal.append(record);
+            }
+            journal.force();
+        }
+
+        close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+        replay(record -> { });
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    int size() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), growthSize);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        position = 0;
+    }
+
+    private void ensureCapacity(final int recordSize) throws IOException {
+        if (position + recordSize + HEADER_SIZE <= buffer.capacity()) {
+            return;
+        }
+        buffer.force();
+        long size = (long) buffer.capacity() + Math.max(growthSize, recordSize + HEADER_SIZE);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Reservation journal " + path + " is full, compaction is falling behind");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    static final class Record {
+
+        final byte type;
+        final long expiresAt;
+        final long productId;
+        final long supplierId;
+        final int quantity;
+        final String sessionId;
+
+        Record(final byte type, final long expiresAt, final long productId, final long supplierId, final int quantity, final String sessionId) {
+            this.type = type;
+            this.expiresAt = expiresAt;
+            this.productId = productId;
+            this.supplierId = supplierId;
+            this.quantity = quantity;
+            this.sessionId = sessionId;
+        }
+
+        private void encode(final ByteBuffer out) {
+            byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+            out.put(type);
+            out.putLong(expiresAt);
+            out.putLong(productId);
+            out.putLong(supplierId);
+            out.putInt(quantity);
+            out.putShort((short) session.length);
+            out.put(session);
+        }
+
+        private static Record decode(final ByteBuffer in) {
+            byte type = in.get();
+            long expiresAt = in.getLong();
+            long productId = in.getLong();
+            long supplierId = in.getLong();
+            int quantity = in.getInt();
+            byte[] session = new byte[in.getShort() & 0xFFFF];
+            in.get(session);
+
+            return new Record(type, expiresAt, productId, supplierId, quantity, new String(session, StandardCharsets.UTF_8));
+        }
+    }
+}
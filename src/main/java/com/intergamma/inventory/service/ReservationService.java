@@ -2,68 +2,138 @@ package com.intergamma.inventory.service;
 
 import com.intergamma.inventory.domain.Reservation;
 import com.intergamma.inventory.exception.ServiceException;
-import com.intergamma.inventory.repository.ProductRepository;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.redis.core.RedisTemplate;
+import com.intergamma.inventory.jfr.ReservationAdmissionEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
+@Lazy(false)
 public class ReservationService {
 
-    private RedisTemplate<String, Object> redisTemplate;
-    private ProductRepository productRepository;
+    private static final String ADMISSION_TIMER = "inventory.reservation.admission";
+    private static final String PRODUCT_LOOKUP_TIMER = "inventory.product.lookup";
+
+    private ReservationStore reservationStore;
+    private ProductLoader productLoader;
+    private MeterRegistry meterRegistry;
+    private LowStockDetector lowStockDetector;
+    private HotProductAdmission hotProductAdmission;
+
+    private final Timer admissionAllowedTimer;
+    private final Timer admissionRejectedTimer;
+    private final Timer admissionNotFoundTimer;
+    private final Timer admissionFailedTimer;
+    private final Timer productLookupTimer;
 
     public ReservationService(
-                    final RedisTemplate<String, Object> redisTemplate,
-                    final ProductRepository productRepository) {
-        this.redisTemplate = redisTemplate;
-        this.productRepository = productRepository;
+                    final ReservationStore reservationStore,
+                    final ProductLoader productLoader,
+                    final MeterRegistry meterRegistry,
+                    final LowStockDetector lowStockDetector,
+                    final HotProductAdmission hotProductAdmission) {
+        this.reservationStore = reservationStore;
+        this.productLoader = productLoader;
+        this.meterRegistry = meterRegistry;
+        this.lowStockDetector = lowStockDetector;
+        this.hotProductAdmission = hotProductAdmission;
+
+        this.admissionAllowedTimer = admissionTimer("allowed");
+        this.admissionRejectedTimer = admissionTimer("rejected");
+        this.admissionNotFoundTimer = admissionTimer("not-found");
+        this.admissionFailedTimer = admissionTimer("failed");
+        this.productLookupTimer = Timer.builder(PRODUCT_LOOKUP_TIMER)
+                        .description("Postgres lookup of the product stock during reservation admission")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
     }
 
-    public Boolean isQuantityAllowed(Reservation reservation) {
-        Integer productStockQuantity = productRepository.findById(reservation.getProductId())
-                        .orElseThrow(() -> new ServiceException("Product not found"))
-                        .getQuantity();
-        Integer productQuantityAlreadyReserved = getReservationsBySupplierAndProductFromCache(reservation.getSupplierId().toString(), reservation.getProductId().toString())
-                        .stream()
-                        .map(r -> r.getQuantity())
-                        .reduce((q1, q2) -> q1 + q2)
-                        .orElse(0);
-        if (productQuantityAlreadyReserved + reservation.getQuantity() > productStockQuantity) {
+    /**
+     * Admits the reservation if the product has enough unreserved stock; the check and the save are one atomic
+     * operation in the reservation store. Reservations of hot products are admitted in batches.
+     */
+    public Boolean reserve(Reservation reservation) {
+        ReservationAdmissionEvent event = new ReservationAdmissionEvent();
+        event.begin();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean hot = hotProductAdmission.isHot(reservation.getProductId());
+        boolean admitted;
+        try {
+            if (hot) {
+                admitted = hotProductAdmission.reserve(reservation);
+            }
+            else {
+                Integer productStockQuantity = productLookupTimer.record(() -> productLoader.loadFromPrimary(reservation.getProductId()))
+                                .orElseThrow(() -> new ServiceException("Product not found"))
+                                .getQuantity();
+                admitted = reservationStore.reserve(reservation, productStockQuantity);
+            }
+        }
+        catch (ServiceException e) {
+            sample.stop(admissionNotFoundTimer);
+            commit(event, reservation, hot, "not-found");
+            throw e;
+        }
+        catch (RuntimeException e) {
+            sample.stop(admissionFailedTimer);
+            commit(event, reservation, hot, "failed");
+            throw e;
+        }
+        if (!admitted) {
+            sample.stop(admissionRejectedTimer);
+            commit(event, reservation, hot, "rejected");
             return false;
         }
+        sample.stop(admissionAllowedTimer);
+        commit(event, reservation, hot, "allowed");
+        lowStockDetector.productChanged(reservation.getProductId());
         return true;
     }
 
     public List<Reservation> getAllReservationsFromCache() {
-        Set<String> keys = redisTemplate.keys("*");
-        return keys.stream()
-                        .map(s -> redisTemplate.boundValueOps(s))
-                        .map(value -> (Reservation) value.get())
-                        .collect(Collectors.toList());
+        return reservationStore.findAll();
     }
 
-    @Cacheable(cacheNames = "reservationCache", key = "'key_'.concat(#sessionId).concat('_').concat(#supplierId).concat('_').concat(#productId)")
-    public Reservation getReservationsBySessionAndSupplierAndProductFromCache(String sessionId, String supplierId, String productId) {
-        return null;
+    public Optional<Reservation> getReservationsBySessionAndSupplierAndProductFromCache(String sessionId, Long supplierId, Long productId) {
+        return reservationStore.find(sessionId, supplierId, productId);
     }
 
+    public List<Reservation> getReservationsBySupplierAndProductFromCache(Long supplierId, Long productId) {
+        return reservationStore.findBySupplierAndProduct(supplierId, productId);
+    }
+
+    public List<Reservation> getReservationsBySessionFromCache(String sessionId) {
+        return reservationStore.findBySession(sessionId);
+    }
 
-    @CachePut(cacheNames = "reservationCache", key = "'key_'.concat(#reservation.sessionId).concat('_').concat(#reservation.supplierId).concat('_').concat(#reservation.productId)")
-    public Reservation addToCache(final Reservation reservation) {
-        return reservation;
+    public List<Reservation> releaseReservationsBySession(String sessionId) {
+        List<Reservation> released = reservationStore.releaseSession(sessionId);
+        lowStockDetector.productsChanged(released.stream().map(Reservation::getProductId).collect(Collectors.toSet()));
+        return released;
+    }
+
+    private static void commit(final ReservationAdmissionEvent event, final Reservation reservation, final boolean hot, final String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.productId = reservation.getProductId();
+            event.supplierId = reservation.getSupplierId();
+            event.quantity = reservation.getQuantity();
+            event.outcome = outcome;
+            event.hot = hot;
+            event.commit();
+        }
     }
 
-    public List<Reservation> getReservationsBySupplierAndProductFromCache(String supplierId, String productId) {
-        Set<String> keys = redisTemplate.keys("*_".concat(supplierId).concat("_").concat(productId));
-        return keys.stream()
-                        .map(s -> redisTemplate.boundValueOps(s))
-                        .map(value -> (Reservation) value.get())
-                        .collect(Collectors.toList());
+    private Timer admissionTimer(final String outcome) {
+        return Timer.builder(ADMISSION_TIMER)
+                        .description("Reservation admission latency by outcome")
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
     }
 }
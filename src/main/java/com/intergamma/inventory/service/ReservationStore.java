@@ -0,0 +1,85 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Reservation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage of the reservations, which expire after {@code spring.redis.ttl} seconds.
+ * <p>
+ * Selected with {@code intergamma.reservation.store}: {@code redis} (default) or {@code embedded}.
+ */
+public interface ReservationStore {
+
+    /**
+     * Atomically saves the reservation if the quantity reserved for its supplier and product, without a previous
+     * reservation of the same session, stays within the stock.
+     *
+     * @return whether the reservation was admitted
+     */
+    boolean reserve(Reservation reservation, int stock);
+
+    /**
+     * Admits reservations of one product in order, as {@link #reserve} does for each, until the stock runs out.
+     * Stores that can should decide the whole batch in one atomic step.
+     *
+     * @return per reservation, whether it was admitted
+     */
+    default List<Boolean> reserveAll(final List<Reservation> reservations, final int stock) {
+        List<Boolean> admitted = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            admitted.add(reserve(reservation, stock));
+        }
+        return admitted;
+    }
+
+    void save(Reservation reservation);
+
+    Optional<Reservation> find(String sessionId, Long supplierId, Long productId);
+
+    List<Reservation> findAll();
+
+    List<Reservation> findBySupplierAndProduct(Long supplierId, Long productId);
+
+    /**
+     * @return the quantity of a product reserved for all suppliers
+     */
+    long reservedQuantity(Long productId);
+
+    /**
+     * Returns {@link #reservedQuantity} for every product. Stores that can should read them in one round trip.
+     *
+     * @return the reserved quantity by product id
+     */
+    default Map<Long, Long> reservedQuantities(final Collection<Long> productIds) {
+        Map<Long, Long> reserved = new HashMap<>();
+        for (Long productId : productIds) {
+            reserved.put(productId, reservedQuantity(productId));
+        }
+        return reserved;
+    }
+
+    /**
+     * Sums the live reservations per product without materialising them, for aggregates over the whole store.
+     *
+     * @return the reserved quantity by id of every product that has live reservations
+     */
+    Map<Long, Long> reservedTotals();
+
+    /**
+     * Returns the reservations of a session and slides their expiry, as for any other activity of the session.
+     */
+    List<Reservation> findBySession(String sessionId);
+
+    /**
+     * Removes all reservations of a session, returning their quantities to the stock.
+     *
+     * @return the released reservations
+     */
+    List<Reservation> releaseSession(String sessionId);
+}
@@ -0,0 +1,52 @@
+package com.intergamma.inventory.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the monthly partitions of the stock movement ledger ahead of time and drops the ones past the retention, with
+ * the functions installed by the {@code create_entity_stock_movement_v1} changelog.
+ */
+@Service
+public class StockMovementPartitionMaintainer {
+
+    private final Logger log = LoggerFactory.getLogger(StockMovementPartitionMaintainer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${intergamma.stock-movement.partitions-ahead}")
+    private int partitionsAhead;
+
+    @Value("${intergamma.stock-movement.retention-months}")
+    private int retentionMonths;
+
+    public StockMovementPartitionMaintainer(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${intergamma.stock-movement.maintenance-cron}")
+    public void maintainPartitions() {
+        try {
+            Integer created = jdbcTemplate.queryForObject("SELECT stock_movement_create_partitions(?)", Integer.class, partitionsAhead);
+            Integer dropped = jdbcTemplate.queryForObject("SELECT stock_movement_drop_partitions(?)", Integer.class, retentionMonths);
+            if (created != null && created > 0 || dropped != null && dropped > 0) {
+                log.info("Stock movement partitions: {} created, {} dropped past the retention of {} months", created, dropped, retentionMonths);
+            }
+        }
+        catch (RuntimeException e) {
+            // movements of months without a partition land in the default partition until the next run
+            log.error("Stock movement partition maintenance failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.StockMovement;
+import com.intergamma.inventory.exception.ServiceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Applies stock changes and appends them to the {@code stock_movement} ledger, which is partitioned by month. History
+ * reads are bounded by a number of months back, so only the recent partitions are scanned.
+ * <p>
+ * Must be called within a transaction, so the stock and its ledger row are committed together.
+ */
+@Service
+public class StockMovementService {
+
+    private static final String INSERT_MOVEMENT = "INSERT INTO stock_movement (product_id, type, quantity, quantity_after, reference)"
+                    + " VALUES (?, ?, ?, ?, ?) RETURNING id, product_id, type, quantity, quantity_after, reference, created_at";
+
+    private static final RowMapper<StockMovement> MOVEMENT_MAPPER = (rs, rowNum) -> {
+        StockMovement movement = new StockMovement();
+        movement.setId(rs.getLong("id"));
+        movement.setProductId(rs.getLong("product_id"));
+        movement.setType(StockMovement.Type.valueOf(rs.getString("type")));
+        movement.setQuantity(rs.getLong("quantity"));
+        movement.setQuantityAfter(rs.getLong("quantity_after"));
+        movement.setReference(rs.getString("reference"));
+        movement.setCreatedAt(rs.getTimestamp("created_at").toInstant());
+        return movement;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${intergamma.stock-movement.retention-months}")
+    private int retentionMonths;
+
+    public StockMovementService(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the quantity of the movement to the stock of the product and records the movement. Receipts must add
+     * stock, sales and reservation commits must take it; no movement may take the stock below zero.
+     */
+    public StockMovement apply(final Long productId, final StockMovement movement) {
+        long quantity = movement.getQuantity();
+        if (quantity == 0
+                        || movement.getType() == StockMovement.Type.RECEIPT && quantity < 0
+                        || (movement.getType() == StockMovement.Type.SALE || movement.getType() == StockMovement.Type.RESERVATION_COMMIT) && quantity > 0) {
+            throw new ServiceException("Quantity " + quantity + " doesn't match a " + movement.getType() + " movement");
+        }
+
+        List<Long> quantityAfter = jdbcTemplate.queryForList(
+                        "UPDATE product SET quantity = quantity + ? WHERE id = ? AND deleted_at IS NULL AND quantity + ? >= 0 RETURNING quantity",
+                        Long.class, quantity, productId, quantity);
+        if (quantityAfter.isEmpty()) {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM product WHERE id = ? AND deleted_at IS NULL)", Boolean.class, productId);
+            throw new ServiceException(Boolean.TRUE.equals(exists) ? "Insufficient stock" : "Product not found");
+        }
+        return record(productId, movement.getType(), quantity, quantityAfter.get(0), movement.getReference());
+    }
+
+    /**
+     * Locks the row of the product until the transaction ends and returns its stock, so a change recorded against it
+     * can't interleave with a concurrent movement.
+     */
+    public Optional<Long> lockStock(final Long productId) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM product WHERE id = ? AND deleted_at IS NULL FOR UPDATE", Long.class, productId)
+                        .stream()
+                        .findFirst();
+    }
+
+    /**
+     * Records a stock change that has already been applied to the product.
+     */
+    public StockMovement record(final Long productId, final StockMovement.Type type, final long quantity, final long quantityAfter,
+                                final String reference) {
+        return jdbcTemplate.queryForObject(INSERT_MOVEMENT, MOVEMENT_MAPPER, productId, type.name(), quantity, quantityAfter, reference);
+    }
+
+    /**
+     * The movements of a product of the last months, newest first.
+     */
+    public List<StockMovement> findByProduct(final Long productId, final int months, final int limit) {
+        Instant since = Instant.now().atOffset(ZoneOffset.UTC).minusMonths(Math.min(months, retentionMonths)).toInstant();
+        return jdbcTemplate.query("SELECT * FROM stock_movement WHERE product_id = ? AND created_at >= ? ORDER BY created_at DESC LIMIT ?",
+                        MOVEMENT_MAPPER, productId, Timestamp.from(since), limit);
+    }
+}
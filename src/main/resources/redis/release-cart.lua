@@ -0,0 +1,29 @@
+-- Releases the reservations of a session, removing them from their product hashes and from the cart, and deletes the
+-- cart once it is empty. KEYS[1] = cart:{sessionId}, KEYS[i + 1] = the product hash of the i-th cart field in ARGV.
+-- Returns the released, unexpired reservations as a flat list of productId:supplierId fields and quantities.
+-- The cart and the product hashes live on different shards in a cluster, so this script only runs outside a cluster.
+-- ARGV: session id, now, then the cart fields.
+local now = tonumber(ARGV[2])
+local result = {}
+
+for i = 3, #ARGV do
+    local item = ARGV[i]
+    local key = KEYS[i - 1]
+    local supplierId = string.match(item, '^%d+:(%d+)$')
+    local field = supplierId .. ':' .. ARGV[1]
+    local value = redis.call('HGET', key, field)
+    if value then
+        redis.call('HDEL', key, field)
+        local quantity, expiresAt = string.match(value, '^(-?%d+):(%d+)$')
+        if expiresAt ~= nil and tonumber(expiresAt) > now then
+            result[#result + 1] = item
+            result[#result + 1] = quantity
+        end
+    end
+    redis.call('HDEL', KEYS[1], item)
+end
+
+if redis.call('HLEN', KEYS[1]) == 0 then
+    redis.call('DEL', KEYS[1])
+end
+return result
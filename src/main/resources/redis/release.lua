@@ -0,0 +1,14 @@
+-- Releases one reservation, KEYS[1] = reservation:{productId}, and returns its quantity, or false when it expired or
+-- doesn't exist. The per-shard step of release-cart.lua in a cluster.
+-- ARGV: field, now.
+local value = redis.call('HGET', KEYS[1], ARGV[1])
+if not value then
+    return false
+end
+redis.call('HDEL', KEYS[1], ARGV[1])
+
+local quantity, expiresAt = string.match(value, '^(-?%d+):(%d+)$')
+if expiresAt == nil or tonumber(expiresAt) <= tonumber(ARGV[2]) then
+    return false
+end
+return quantity
@@ -0,0 +1,48 @@
+-- Admits a batch of reservations of one product in arrival order, KEYS[1] = reservation:{productId}.
+-- Fields are supplierId:sessionId, values quantity:expiresAtMillis, as in reserve.lua.
+-- ARGV: now, stock (negative for no limit), ttl in ms, then per reservation: field, quantity, cart field.
+-- Outside a cluster KEYS[i + 1] is the cart of the i-th reservation, which is updated in the same step.
+-- Returns 1 or 0 per reservation.
+local now = tonumber(ARGV[1])
+local stock = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+local quantities = {}
+local reservedBySupplier = {}
+
+local fields = redis.call('HGETALL', KEYS[1])
+for i = 1, #fields, 2 do
+    local quantity, expiresAt = string.match(fields[i + 1], '^(-?%d+):(%d+)$')
+    if expiresAt == nil or tonumber(expiresAt) <= now then
+        redis.call('HDEL', KEYS[1], fields[i])
+    else
+        local supplier = string.match(fields[i], '^([^:]*):')
+        quantities[fields[i]] = tonumber(quantity)
+        reservedBySupplier[supplier] = (reservedBySupplier[supplier] or 0) + tonumber(quantity)
+    end
+end
+
+local admitted = {}
+local count = (#ARGV - 3) / 3
+for i = 1, count do
+    local field = ARGV[3 * i + 1]
+    local quantity = tonumber(ARGV[3 * i + 2])
+    local supplier = string.match(field, '^([^:]*):')
+    local reserved = (reservedBySupplier[supplier] or 0) - (quantities[field] or 0)
+    if stock >= 0 and reserved + quantity > stock then
+        admitted[i] = 0
+    else
+        redis.call('HSET', KEYS[1], field, ARGV[3 * i + 2] .. ':' .. (now + ttl))
+        quantities[field] = quantity
+        reservedBySupplier[supplier] = reserved + quantity
+        if #KEYS > 1 then
+            redis.call('HSET', KEYS[i + 1], ARGV[3 * i + 3], ARGV[3 * i + 2])
+            redis.call('PEXPIRE', KEYS[i + 1], ttl)
+        end
+        admitted[i] = 1
+    end
+end
+
+if redis.call('PTTL', KEYS[1]) < ttl then
+    redis.call('PEXPIRE', KEYS[1], ttl)
+end
+return admitted
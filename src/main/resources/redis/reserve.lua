@@ -0,0 +1,40 @@
+-- Admits a reservation into the hash of its product, KEYS[1] = reservation:{productId}.
+-- Fields are supplierId:sessionId, values quantity:expiresAtMillis.
+-- ARGV: field, quantity, now, stock (negative for no limit), supplier field prefix, ttl in ms, cart field,
+-- 1 to leave a live reservation of the same field in place (and return 0) instead of replacing it.
+-- Outside a cluster KEYS[2] is the cart of the session, cart:{sessionId}, which is updated in the same step.
+local now = tonumber(ARGV[3])
+local stock = tonumber(ARGV[4])
+local prefix = ARGV[5]
+local reserved = 0
+local existing = false
+
+local fields = redis.call('HGETALL', KEYS[1])
+for i = 1, #fields, 2 do
+    local quantity, expiresAt = string.match(fields[i + 1], '^(-?%d+):(%d+)$')
+    if expiresAt == nil or tonumber(expiresAt) <= now then
+        redis.call('HDEL', KEYS[1], fields[i])
+    elseif fields[i] == ARGV[1] then
+        existing = true
+    elseif string.sub(fields[i], 1, #prefix) == prefix then
+        reserved = reserved + tonumber(quantity)
+    end
+end
+
+if existing and ARGV[8] == '1' then
+    return 0
+end
+if stock >= 0 and reserved + tonumber(ARGV[2]) > stock then
+    return 0
+end
+
+local ttl = tonumber(ARGV[6])
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':' .. (now + ttl))
+if redis.call('PTTL', KEYS[1]) < ttl then
+    redis.call('PEXPIRE', KEYS[1], ttl)
+end
+if #KEYS > 1 then
+    redis.call('HSET', KEYS[2], ARGV[7], ARGV[2])
+    redis.call('PEXPIRE', KEYS[2], ttl)
+end
+return 1
@@ -0,0 +1,37 @@
+-- Slides the expiry of the reservations of a session and returns them as a flat list of productId:supplierId fields
+-- and quantities. KEYS[1] = cart:{sessionId}, KEYS[i + 1] = the product hash of the i-th cart field in ARGV.
+-- Reservations that already expired are dropped from the cart, fields no longer in the cart are skipped.
+-- The cart and the product hashes live on different shards in a cluster, so this script only runs outside a cluster.
+-- ARGV: session id, now, ttl in ms, then the cart fields.
+local now = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+local result = {}
+
+for i = 4, #ARGV do
+    local item = ARGV[i]
+    local key = KEYS[i - 2]
+    if redis.call('HEXISTS', KEYS[1], item) == 1 then
+        local supplierId = string.match(item, '^%d+:(%d+)$')
+        local field = supplierId .. ':' .. ARGV[1]
+        local value = redis.call('HGET', key, field)
+        local quantity, expiresAt
+        if value then
+            quantity, expiresAt = string.match(value, '^(-?%d+):(%d+)$')
+        end
+        if expiresAt ~= nil and tonumber(expiresAt) > now then
+            redis.call('HSET', key, field, quantity .. ':' .. (now + ttl))
+            if redis.call('PTTL', key) < ttl then
+                redis.call('PEXPIRE', key, ttl)
+            end
+            result[#result + 1] = item
+            result[#result + 1] = quantity
+        else
+            redis.call('HDEL', KEYS[1], item)
+        end
+    end
+end
+
+if #result > 0 then
+    redis.call('PEXPIRE', KEYS[1], ttl)
+end
+return result
@@ -0,0 +1,21 @@
+-- Slides the expiry of one reservation, KEYS[1] = reservation:{productId}, and returns its quantity, or false when it
+-- expired or doesn't exist. The per-shard step of touch-cart.lua in a cluster.
+-- ARGV: field, now, ttl in ms.
+local now = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+
+local value = redis.call('HGET', KEYS[1], ARGV[1])
+if not value then
+    return false
+end
+local quantity, expiresAt = string.match(value, '^(-?%d+):(%d+)$')
+if expiresAt == nil or tonumber(expiresAt) <= now then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    return false
+end
+
+redis.call('HSET', KEYS[1], ARGV[1], quantity .. ':' .. (now + ttl))
+if redis.call('PTTL', KEYS[1]) < ttl then
+    redis.call('PEXPIRE', KEYS[1], ttl)
+end
+return quantity
@@ -0,0 +1,33 @@
+package com.intergamma.inventory.loadtest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * End-to-end load test against a running API, started with the Postgres and Redis containers in {@code docker/}.
+ * Only runs with the {@code loadtest} Maven profile: {@code ./mvnw test -Ploadtest -Dloadtest.products=1000000}.
+ */
+@Tag("loadtest")
+class CatalogLoadTest {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogLoadTest.class);
+
+    @Test
+    void catalogAndReservationWorkload() throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        if (settings.generateCatalog) {
+            new SyntheticCatalogGenerator(settings).generate();
+        }
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        Duration elapsed = new WorkloadDriver(settings, recorder).run();
+
+        String report = LoadTestReport.format(settings, recorder, elapsed);
+        LoadTestReport.write(settings.reportFile, report);
+        log.info("\n{}", report);
+    }
+}
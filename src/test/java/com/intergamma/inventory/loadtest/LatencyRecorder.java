@@ -0,0 +1,52 @@
+package com.intergamma.inventory.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records request latencies per operation in HDR histograms with microsecond resolution.
+ */
+class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    void start() {
+        operations.clear();
+        recording = true;
+    }
+
+    void stop() {
+        recording = false;
+    }
+
+    void record(final String operation, final long startNanos, final boolean success) {
+        if (!recording) {
+            return;
+        }
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos), HIGHEST_TRACKABLE_MICROS);
+        Operation stats = operations.computeIfAbsent(operation, o -> new Operation());
+        stats.histogram.recordValue(micros);
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    Map<String, Operation> operations() {
+        return operations;
+    }
+
+    static final class Operation {
+
+        final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+    }
+}
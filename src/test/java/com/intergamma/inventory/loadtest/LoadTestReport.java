@@ -0,0 +1,68 @@
+package com.intergamma.inventory.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Formats the latency percentiles and throughput of a load test run.
+ */
+final class LoadTestReport {
+
+    private static final String ROW = "%-24s %10s %8s %10s %9s %9s %9s %9s %9s%n";
+
+    private LoadTestReport() {}
+
+    static String format(final LoadTestSettings settings, final LatencyRecorder recorder, final Duration elapsed) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Load test against %s: %d users, %d s measured, catalog of %d products%n%n",
+                        settings.baseUrl, settings.virtualUsers, elapsed.getSeconds(), settings.products));
+        report.append(String.format(ROW, "operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Map.Entry<String, LatencyRecorder.Operation> entry : new TreeMap<>(recorder.operations()).entrySet()) {
+            Histogram histogram = entry.getValue().histogram;
+            long errors = entry.getValue().errors.sum();
+            total.add(histogram);
+            totalErrors += errors;
+            report.append(row(entry.getKey(), histogram, errors, elapsed));
+        }
+        report.append(row("TOTAL", total, totalErrors, elapsed));
+
+        return report.toString();
+    }
+
+    static void write(final String file, final String report) throws IOException {
+        Path path = Paths.get(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.write(path, report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String row(final String operation, final Histogram histogram, final long errors, final Duration elapsed) {
+        double seconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+        return String.format(ROW,
+                        operation,
+                        histogram.getTotalCount(),
+                        errors,
+                        String.format("%.1f", histogram.getTotalCount() / seconds),
+                        millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(90)),
+                        millis(histogram.getValueAtPercentile(99)),
+                        millis(histogram.getValueAtPercentile(99.9)),
+                        millis(histogram.getMaxValue()));
+    }
+
+    private static String millis(final long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,59 @@
+package com.intergamma.inventory.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Load test settings, read from system properties so they can be passed with {@code -D} on the Maven command line.
+ */
+final class LoadTestSettings {
+
+    static final long SUPPLIER_ID_OFFSET = 10_000_000L;
+    static final long CATEGORY_ID_OFFSET = 10_000_000L;
+    static final long PRODUCT_ID_OFFSET = 10_000_000L;
+
+    final String baseUrl = property("loadtest.base-url", "http://localhost:7070");
+    final String jdbcUrl = property("loadtest.jdbc-url", "jdbc:postgresql://127.0.0.1:15432/inventory");
+    final String jdbcUsername = property("loadtest.jdbc-username", "postgres");
+    final String jdbcPassword = property("loadtest.jdbc-password", "password");
+
+    final boolean generateCatalog = Boolean.parseBoolean(property("loadtest.generate", "true"));
+    final int suppliers = Integer.parseInt(property("loadtest.suppliers", "50"));
+    final int categories = Integer.parseInt(property("loadtest.categories", "200"));
+    final int products = Integer.parseInt(property("loadtest.products", "1000000"));
+    final int productStock = Integer.parseInt(property("loadtest.product-stock", "100"));
+
+    final int virtualUsers = Integer.parseInt(property("loadtest.users", "64"));
+    final Duration warmup = Duration.ofSeconds(Long.parseLong(property("loadtest.warmup-seconds", "10")));
+    final Duration duration = Duration.ofSeconds(Long.parseLong(property("loadtest.duration-seconds", "60")));
+
+    final int browseWeight = Integer.parseInt(property("loadtest.mix.browse", "70"));
+    final int listWeight = Integer.parseInt(property("loadtest.mix.list", "0"));
+    final int hotProductWeight = Integer.parseInt(property("loadtest.mix.hot-product", "20"));
+    final int cartBurstWeight = Integer.parseInt(property("loadtest.mix.cart-burst", "10"));
+
+    final int hotProducts = Integer.parseInt(property("loadtest.hot-products", "3"));
+    final int cartSize = Integer.parseInt(property("loadtest.cart-size", "20"));
+    final double browseSkew = Double.parseDouble(property("loadtest.browse-skew", "3.0"));
+
+    final String reportFile = property("loadtest.report", "target/loadtest-report.txt");
+
+    long supplierIdOf(final int index) {
+        return SUPPLIER_ID_OFFSET + index;
+    }
+
+    long categoryIdOf(final int index) {
+        return CATEGORY_ID_OFFSET + index;
+    }
+
+    long productIdOf(final int index) {
+        return PRODUCT_ID_OFFSET + index;
+    }
+
+    long supplierIdOfProduct(final int productIndex) {
+        return supplierIdOf(productIndex % suppliers);
+    }
+
+    private static String property(final String name, final String defaultValue) {
+        return System.getProperty(name, defaultValue);
+    }
+}
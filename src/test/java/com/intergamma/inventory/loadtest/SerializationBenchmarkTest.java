@@ -0,0 +1,109 @@
+package com.intergamma.inventory.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.intergamma.inventory.domain.Category;
+import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.domain.Reservation;
+import com.intergamma.inventory.domain.Supplier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares payload size and encode/decode time of the product and reservation payloads in JSON, CBOR and Smile, with
+ * mappers configured like the ones of the application. Runs in-process with the {@code loadtest} Maven profile:
+ * {@code ./mvnw test -Ploadtest -Dtest=SerializationBenchmarkTest -Dbenchmark.products=100 -Dbenchmark.iterations=20000}.
+ */
+@Tag("loadtest")
+class SerializationBenchmarkTest {
+
+    private final Logger log = LoggerFactory.getLogger(SerializationBenchmarkTest.class);
+
+    private static final String ROW = "%-8s %-14s %12s %14s %14s%n";
+
+    private final int products = Integer.parseInt(System.getProperty("benchmark.products", "100"));
+    private final int iterations = Integer.parseInt(System.getProperty("benchmark.iterations", "20000"));
+
+    @Test
+    void compareFormats() throws IOException {
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json().build());
+        mappers.put("cbor", Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build());
+        mappers.put("smile", Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build());
+
+        List<Product> catalog = catalog();
+        List<Reservation> reservations = reservations();
+
+        StringBuilder report = new StringBuilder(String.format("Serialization of %d products and %d reservations, %d iterations%n%n",
+                        catalog.size(), reservations.size(), iterations));
+        report.append(String.format(ROW, "format", "payload", "bytes", "encode us/op", "decode us/op"));
+        for (Map.Entry<String, ObjectMapper> mapper : mappers.entrySet()) {
+            report.append(measure(mapper.getKey(), "products", mapper.getValue(), catalog, new TypeReference<List<Product>>() {}));
+            report.append(measure(mapper.getKey(), "product", mapper.getValue(), catalog.get(0), new TypeReference<Product>() {}));
+            report.append(measure(mapper.getKey(), "reservations", mapper.getValue(), reservations, new TypeReference<List<Reservation>>() {}));
+        }
+        log.info("\n{}", report);
+    }
+
+    private <T> String measure(final String format, final String payload, final ObjectMapper mapper, final T value,
+                               final TypeReference<T> type) throws IOException {
+        byte[] encoded = mapper.writeValueAsBytes(value);
+        // warm up both paths before measuring
+        for (int i = 0; i < iterations / 10; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(value), type);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encoded = mapper.writeValueAsBytes(value);
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mapper.readValue(encoded, type);
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        return String.format(ROW, format, payload, encoded.length,
+                        String.format("%.2f", encodeNanos / 1000.0 / iterations), String.format("%.2f", decodeNanos / 1000.0 / iterations));
+    }
+
+    private List<Product> catalog() {
+        List<Product> catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Supplier supplier = new Supplier().id((long) i % 50).name("Supplier " + i % 50).description("Supplier of building materials")
+                            .address("Industrieweg " + i % 50 + ", Leusden").phone("033-4343434").email("sales" + i % 50 + "@example.com");
+            Category category = new Category().id((long) i % 200).name("Category " + i % 200).description("Tools and hardware");
+            catalog.add(new Product().id(LoadTestSettings.PRODUCT_ID_OFFSET + i).code("P" + (LoadTestSettings.PRODUCT_ID_OFFSET + i))
+                            .name("Product " + i).description("Synthetic product for the serialization benchmark").unit("piece")
+                            .price(String.format("%d,%02d", i % 500, i % 100)).quantity(i % 1000).status("ACTIVE")
+                            .supplier(supplier).category(category));
+        }
+        return catalog;
+    }
+
+    private List<Reservation> reservations() {
+        List<Reservation> reservations = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Reservation reservation = new Reservation();
+            reservation.setSessionId("session-" + i % 20);
+            reservation.setSupplierId((long) i % 50);
+            reservation.setProductId(LoadTestSettings.PRODUCT_ID_OFFSET + i);
+            reservation.setQuantity(1 + i % 5);
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+}
@@ -0,0 +1,128 @@
+package com.intergamma.inventory.loadtest;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Generates a synthetic catalog straight into Postgres with COPY, so millions of products load in seconds.
+ * Synthetic rows use ids above {@link LoadTestSettings#PRODUCT_ID_OFFSET} and are replaced on every run.
+ */
+class SyntheticCatalogGenerator {
+
+    private final Logger log = LoggerFactory.getLogger(SyntheticCatalogGenerator.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final LoadTestSettings settings;
+
+    SyntheticCatalogGenerator(final LoadTestSettings settings) {
+        this.settings = settings;
+    }
+
+    void generate() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(settings.jdbcUrl, settings.jdbcUsername, settings.jdbcPassword)) {
+            connection.setAutoCommit(false);
+            deleteSyntheticRows(connection);
+
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            copySuppliers(pgConnection);
+            copyCategories(pgConnection);
+            copyProducts(pgConnection);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE supplier");
+                statement.execute("ANALYZE category");
+                statement.execute("ANALYZE product");
+            }
+            connection.commit();
+        }
+        log.info("Generated {} suppliers, {} categories and {} products in {} ms",
+                        settings.suppliers, settings.categories, settings.products, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void deleteSyntheticRows(final Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM product WHERE id >= " + LoadTestSettings.PRODUCT_ID_OFFSET);
+            statement.executeUpdate("DELETE FROM supplier WHERE id >= " + LoadTestSettings.SUPPLIER_ID_OFFSET);
+            statement.executeUpdate("DELETE FROM category WHERE id >= " + LoadTestSettings.CATEGORY_ID_OFFSET);
+        }
+    }
+
+    private void copySuppliers(final PGConnection connection) throws SQLException {
+        try (RowWriter writer = new RowWriter(connection.getCopyAPI().copyIn(
+                        "COPY supplier (id, name, description, address, phone, email) FROM STDIN WITH (FORMAT text)"))) {
+            for (int i = 0; i < settings.suppliers; i++) {
+                writer.row(settings.supplierIdOf(i), "Supplier " + i, "Synthetic supplier " + i,
+                                "Loadtestlaan " + i, "+31 20 " + (1_000_000 + i), "supplier" + i + "@loadtest.local");
+            }
+        }
+    }
+
+    private void copyCategories(final PGConnection connection) throws SQLException {
+        try (RowWriter writer = new RowWriter(connection.getCopyAPI().copyIn(
+                        "COPY category (id, name, description) FROM STDIN WITH (FORMAT text)"))) {
+            for (int i = 0; i < settings.categories; i++) {
+                writer.row(settings.categoryIdOf(i), "Category " + i, "Synthetic category " + i);
+            }
+        }
+    }
+
+    private void copyProducts(final PGConnection connection) throws SQLException {
+        try (RowWriter writer = new RowWriter(connection.getCopyAPI().copyIn(
+                        "COPY product (id, code, name, description, unit, price, quantity, status, supplier_id, category_id) "
+                                        + "FROM STDIN WITH (FORMAT text)"))) {
+            for (int i = 0; i < settings.products; i++) {
+                writer.row(settings.productIdOf(i), "LT-" + i, "Product " + i, "Synthetic product " + i, "Stuks",
+                                String.valueOf(1 + (i % 500)) + ".99", settings.productStock, "Available",
+                                settings.supplierIdOfProduct(i), settings.categoryIdOf(i % settings.categories));
+            }
+        }
+    }
+
+    /**
+     * Buffers tab separated rows and hands them to the COPY stream in large chunks.
+     */
+    private static final class RowWriter implements AutoCloseable {
+
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE * 2);
+
+        private RowWriter(final CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        void row(final Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append('\t');
+                }
+                buffer.append(values[i]);
+            }
+            buffer.append('\n');
+            if (buffer.length() >= BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            flush();
+            copyIn.endCopy();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.intergamma.inventory.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the REST API with a weighted mix of catalog browsing, hot product contention and cart bursts.
+ */
+class WorkloadDriver {
+
+    private final LoadTestSettings settings;
+    private final LatencyRecorder recorder;
+    private final HttpClient client;
+
+    private volatile boolean running;
+
+    WorkloadDriver(final LoadTestSettings settings, final LatencyRecorder recorder) {
+        this.settings = settings;
+        this.recorder = recorder;
+        this.client = HttpClient.newBuilder()
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .executor(Executors.newFixedThreadPool(Math.max(4, settings.virtualUsers / 4)))
+                        .build();
+    }
+
+    Duration run() throws InterruptedException {
+        ExecutorService users = Executors.newFixedThreadPool(settings.virtualUsers);
+        running = true;
+        for (int i = 0; i < settings.virtualUsers; i++) {
+            users.execute(this::virtualUser);
+        }
+
+        Thread.sleep(settings.warmup.toMillis());
+        recorder.start();
+        long start = System.nanoTime();
+        Thread.sleep(settings.duration.toMillis());
+        recorder.stop();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        running = false;
+        users.shutdown();
+        users.awaitTermination(30, TimeUnit.SECONDS);
+
+        return elapsed;
+    }
+
+    private void virtualUser() {
+        int totalWeight = settings.browseWeight + settings.listWeight + settings.hotProductWeight + settings.cartBurstWeight;
+        while (running) {
+            int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+            if ((pick -= settings.browseWeight) < 0) {
+                browse();
+            }
+            else if ((pick -= settings.listWeight) < 0) {
+                get("product-list", "/api/products");
+            }
+            else if ((pick -= settings.hotProductWeight) < 0) {
+                reserve("reserve-hot-product", UUID.randomUUID().toString(), ThreadLocalRandom.current().nextInt(settings.hotProducts));
+            }
+            else {
+                cartBurst();
+            }
+        }
+    }
+
+    private void browse() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(20);
+        if (roll == 0) {
+            get("supplier-list", "/api/suppliers");
+        }
+        else if (roll == 1) {
+            get("category-list", "/api/categories");
+        }
+        else {
+            get("product-by-id", "/api/products/" + settings.productIdOf(skewedProductIndex()));
+        }
+    }
+
+    private void cartBurst() {
+        String sessionId = UUID.randomUUID().toString();
+        int[] cart = new int[settings.cartSize];
+        for (int i = 0; i < cart.length; i++) {
+            cart[i] = skewedProductIndex();
+            reserve("cart-reserve", sessionId, cart[i]);
+        }
+        for (int productIndex : cart) {
+            get("cart-read", "/api/reservations/" + sessionId + "/" + settings.supplierIdOfProduct(productIndex) + "/" + settings.productIdOf(productIndex));
+        }
+    }
+
+    /**
+     * Picks a product with a power law skew towards the start of the catalog, so some products are much hotter than others.
+     */
+    private int skewedProductIndex() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        return Math.min((int) (settings.products * Math.pow(u, settings.browseSkew)), settings.products - 1);
+    }
+
+    private void reserve(final String operation, final String sessionId, final int productIndex) {
+        String body = String.format("{\"sessionId\":\"%s\",\"productId\":%d,\"supplierId\":%d,\"quantity\":1}",
+                        sessionId, settings.productIdOf(productIndex), settings.supplierIdOfProduct(productIndex));
+        send(operation, HttpRequest.newBuilder(uri("/api/reservations"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build());
+    }
+
+    private void get(final String operation, final String path) {
+        send(operation, HttpRequest.newBuilder(uri(path)).GET().build());
+    }
+
+    private void send(final String operation, final HttpRequest request) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            // a rejected reservation (400) is a valid admission decision, only server errors count as failures
+            success = response.statusCode() < 500;
+        }
+        catch (Exception e) {
+            success = false;
+        }
+        recorder.record(operation, start, success);
+    }
+
+    private URI uri(final String path) {
+        return URI.create(settings.baseUrl + path);
+    }
+}
@@ -0,0 +1,42 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.exception.BadRequestException;
+import com.intergamma.inventory.repository.ProductRepository;
+import com.intergamma.inventory.repository.CategoryRepository;
+import com.intergamma.inventory.service.ProductRepresentationCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CategoryResourceTest {
+
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CategoryResource resource = new CategoryResource(categoryRepository, productRepository,
+                    mock(ProductRepresentationCache.class));
+
+    @Test
+    void refusesToDeleteACategoryWithProducts() {
+        when(productRepository.existsByCategoryId(1L)).thenReturn(true);
+
+        BadRequestException e = assertThrows(BadRequestException.class, () -> resource.deleteCategory(1L));
+
+        assertEquals("inuse", e.getErrorKey());
+        verify(categoryRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void deletesACategoryWithoutProducts() {
+        when(productRepository.existsByCategoryId(2L)).thenReturn(false);
+
+        assertEquals(HttpStatus.NO_CONTENT, resource.deleteCategory(2L).getStatusCode());
+        verify(categoryRepository).deleteById(2L);
+    }
+}
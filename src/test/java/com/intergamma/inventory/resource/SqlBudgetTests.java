@@ -0,0 +1,81 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.resource.util.DataSourceStatementCounter;
+import com.intergamma.inventory.service.ProductRepresentationCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.intergamma.inventory.resource.util.SqlBudget.withinSqlBudget;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(DataSourceStatementCounter.class)
+class SqlBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Value("${intergamma.api.name}")
+    private String applicationName;
+
+    @Autowired
+    private ProductRepresentationCache productRepresentationCache;
+
+    @BeforeEach
+    void reset() {
+        // budgets are for a cache miss
+        productRepresentationCache.evictAll();
+        DataSourceStatementCounter.reset();
+    }
+
+    @Test
+    void getAllProducts() throws Exception {
+        // one select for the products, plus one per distinct supplier and category of the sample data
+        mockMvc.perform(get("/api/products"))
+                        .andExpect(status().isOk())
+                        .andExpect(withinSqlBudget(applicationName, 7));
+    }
+
+    @Test
+    void getProduct() throws Exception {
+        mockMvc.perform(get("/api/products/1"))
+                        .andExpect(status().isOk())
+                        .andExpect(withinSqlBudget(applicationName, 1));
+    }
+
+    @Test
+    void getAllSuppliers() throws Exception {
+        mockMvc.perform(get("/api/suppliers"))
+                        .andExpect(status().isOk())
+                        .andExpect(withinSqlBudget(applicationName, 1));
+    }
+
+    @Test
+    void getSupplier() throws Exception {
+        mockMvc.perform(get("/api/suppliers/1"))
+                        .andExpect(status().isOk())
+                        .andExpect(withinSqlBudget(applicationName, 1));
+    }
+
+    @Test
+    void getAllCategories() throws Exception {
+        mockMvc.perform(get("/api/categories"))
+                        .andExpect(status().isOk())
+                        .andExpect(withinSqlBudget(applicationName, 1));
+    }
+
+    @Test
+    void getCategory() throws Exception {
+        mockMvc.perform(get("/api/categories/1"))
+                        .andExpect(status().isOk())
+                        .andExpect(withinSqlBudget(applicationName, 1));
+    }
+}
@@ -0,0 +1,43 @@
+package com.intergamma.inventory.resource;
+
+import com.intergamma.inventory.exception.BadRequestException;
+import com.intergamma.inventory.repository.ProductRepository;
+import com.intergamma.inventory.repository.SupplierRepository;
+import com.intergamma.inventory.service.FieldProjectionService;
+import com.intergamma.inventory.service.ProductRepresentationCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SupplierResourceTest {
+
+    private final SupplierRepository supplierRepository = mock(SupplierRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final SupplierResource resource = new SupplierResource(supplierRepository, productRepository,
+                    mock(ProductRepresentationCache.class), mock(FieldProjectionService.class));
+
+    @Test
+    void refusesToDeleteASupplierWithProducts() {
+        when(productRepository.existsBySupplierId(1L)).thenReturn(true);
+
+        BadRequestException e = assertThrows(BadRequestException.class, () -> resource.deleteSupplier(1L));
+
+        assertEquals("inuse", e.getErrorKey());
+        verify(supplierRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void deletesASupplierWithoutProducts() {
+        when(productRepository.existsBySupplierId(2L)).thenReturn(false);
+
+        assertEquals(HttpStatus.NO_CONTENT, resource.deleteSupplier(2L).getStatusCode());
+        verify(supplierRepository).deleteById(2L);
+    }
+}
@@ -0,0 +1,86 @@
+package com.intergamma.inventory.resource.util;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the statements prepared on connections of the application {@code dataSource}, on any thread, so the
+ * statements of work handed off to other threads, such as the batched product loads, count as well.
+ */
+@TestConfiguration
+public class DataSourceStatementCounter {
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    public static void reset() {
+        STATEMENTS.set(0);
+    }
+
+    public static int get() {
+        return STATEMENTS.get();
+    }
+
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+                    return new CountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static final class CountingDataSource extends DelegatingDataSource {
+
+        private CountingDataSource(final DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(final String username, final String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private static Connection counting(final Connection connection) {
+            return (Connection) Proxy.newProxyInstance(DataSourceStatementCounter.class.getClassLoader(), new Class<?>[] {Connection.class},
+                            (proxy, method, args) -> {
+                                if (STATEMENT_METHODS.contains(method.getName())) {
+                                    STATEMENTS.incrementAndGet();
+                                }
+                                if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                                    return proxy == args[0];
+                                }
+                                if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                                    return System.identityHashCode(proxy);
+                                }
+                                try {
+                                    return method.invoke(connection, args);
+                                }
+                                catch (InvocationTargetException e) {
+                                    throw e.getTargetException();
+                                }
+                            });
+        }
+    }
+}
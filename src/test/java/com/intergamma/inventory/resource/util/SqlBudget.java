@@ -0,0 +1,26 @@
+package com.intergamma.inventory.resource.util;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fails a MockMvc request when the endpoint executed more SQL statements than its declared budget, either as reported
+ * in its statement count header or as counted by the {@link DataSourceStatementCounter} since the last reset.
+ */
+public final class SqlBudget {
+
+    private SqlBudget() {}
+
+    public static ResultMatcher withinSqlBudget(final String applicationName, final int budget) {
+        return result -> {
+            String header = result.getResponse().getHeader(HeaderUtil.sqlStatementCountHeader(applicationName));
+            assertNotNull(header, "No SQL statement count header, is the 'prod' profile active?");
+
+            int statements = Math.max(Integer.parseInt(header), DataSourceStatementCounter.get());
+            assertTrue(statements <= budget, String.format("%s %s executed %d SQL statements, budget is %d",
+                            result.getRequest().getMethod(), result.getRequest().getRequestURI(), statements, budget));
+        };
+    }
+}
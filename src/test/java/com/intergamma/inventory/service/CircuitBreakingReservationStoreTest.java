@@ -0,0 +1,106 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Reservation;
+import com.intergamma.inventory.exception.ReservationStoreUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakingReservationStoreTest {
+
+    private final RedisReservationStore redis = mock(RedisReservationStore.class);
+
+    private CircuitBreakingReservationStore store;
+
+    @AfterEach
+    void shutdown() {
+        store.shutdown();
+    }
+
+    @Test
+    void admitsLocalShareWhileOpenAndResyncsAfterRecovery() throws InterruptedException {
+        store = new CircuitBreakingReservationStore(redis, new SimpleMeterRegistry(), 1800, 2, 100, 1000, "local-share", 0.1);
+        when(redis.reserve(any(), anyInt())).thenThrow(new QueryTimeoutException("Redis command timed out"));
+
+        assertTrue(store.reserve(reservation("a", 4), 100));
+        assertTrue(store.reserve(reservation("b", 4), 100));
+        assertEquals(CircuitBreaker.State.OPEN, store.state());
+        assertFalse(store.reserve(reservation("c", 4), 100));
+        assertTrue(store.reserve(reservation("a", 6), 100));
+        verify(redis, times(2)).reserve(any(), anyInt());
+
+        Thread.sleep(150);
+        when(redis.findAll()).thenReturn(List.of());
+        store.findAll();
+
+        assertEquals(CircuitBreaker.State.CLOSED, store.state());
+        verify(redis, timeout(1000).times(2)).saveIfAbsent(any());
+    }
+
+    @Test
+    void keepsReservationsMadeInRedisAfterRecovery() throws InterruptedException {
+        store = new CircuitBreakingReservationStore(redis, new SimpleMeterRegistry(), 1800, 1, 100, 1000, "local-share", 0.1);
+        when(redis.reserve(any(), anyInt())).thenThrow(new QueryTimeoutException("Redis command timed out"));
+        assertTrue(store.reserve(reservation("a", 4), 100));
+        assertTrue(store.reserve(reservation("b", 4), 100));
+
+        Thread.sleep(150);
+        when(redis.findAll()).thenReturn(List.of());
+        // session a reserved again in Redis after it recovered
+        when(redis.saveIfAbsent(any())).thenAnswer(invocation -> !"a".equals(invocation.<Reservation>getArgument(0).getSessionId()));
+        store.findAll();
+
+        verify(redis, timeout(1000)).saveIfAbsent(argThat(reservation -> "a".equals(reservation.getSessionId())));
+        verify(redis, timeout(1000)).saveIfAbsent(argThat(reservation -> "b".equals(reservation.getSessionId())));
+        verify(redis, times(0)).save(any());
+    }
+
+    @Test
+    void reopensWhenTheTrialCallFailsUnexpectedly() throws InterruptedException {
+        store = new CircuitBreakingReservationStore(redis, new SimpleMeterRegistry(), 1800, 1, 100, 1000, "fail-fast", 0.1);
+        when(redis.reservedQuantity(1L))
+                        .thenThrow(new QueryTimeoutException("Redis command timed out"))
+                        .thenThrow(new IllegalStateException("Unexpected reply"));
+        assertThrows(ReservationStoreUnavailableException.class, () -> store.reservedQuantity(1L));
+        assertEquals(CircuitBreaker.State.OPEN, store.state());
+
+        Thread.sleep(150);
+        assertThrows(IllegalStateException.class, () -> store.reservedQuantity(1L));
+        assertEquals(CircuitBreaker.State.OPEN, store.state());
+    }
+
+    @Test
+    void failsFastWhileOpen() {
+        store = new CircuitBreakingReservationStore(redis, new SimpleMeterRegistry(), 1800, 1, 60000, 1000, "fail-fast", 0.1);
+        when(redis.reservedQuantity(1L)).thenThrow(new QueryTimeoutException("Redis command timed out"));
+
+        assertThrows(ReservationStoreUnavailableException.class, () -> store.reservedQuantity(1L));
+        assertThrows(ReservationStoreUnavailableException.class, () -> store.reserve(reservation("a", 1), 100));
+        verify(redis, times(0)).reserve(any(), anyInt());
+    }
+
+    private static Reservation reservation(final String sessionId, final int quantity) {
+        Reservation reservation = new Reservation();
+        reservation.setSessionId(sessionId);
+        reservation.setSupplierId(1L);
+        reservation.setProductId(10L);
+        reservation.setQuantity(quantity);
+        return reservation;
+    }
+}
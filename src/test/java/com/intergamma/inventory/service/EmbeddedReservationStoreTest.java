@@ -0,0 +1,126 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Reservation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedReservationStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reservationsSurviveRestart() throws IOException {
+        EmbeddedReservationStore store = store(1800);
+        store.save(reservation("a", 1L, 10L, 2));
+        store.save(reservation("b", 1L, 10L, 3));
+        store.save(reservation("a", 1L, 10L, 5));
+        store.save(reservation("a", 2L, 11L, 1));
+        store.shutdown();
+
+        EmbeddedReservationStore restarted = store(1800);
+        assertEquals(2, restarted.findBySupplierAndProduct(1L, 10L).size());
+        assertEquals(5, restarted.find("a", 1L, 10L).orElseThrow().getQuantity());
+        assertEquals(3, restarted.findAll().size());
+        restarted.shutdown();
+    }
+
+    @Test
+    void expiredReservationsAreNotReplayed() throws IOException {
+        EmbeddedReservationStore store = store(0);
+        store.save(reservation("a", 1L, 10L, 2));
+        assertTrue(store.find("a", 1L, 10L).isEmpty());
+        store.shutdown();
+
+        EmbeddedReservationStore restarted = store(1800);
+        assertTrue(restarted.findAll().isEmpty());
+        restarted.shutdown();
+    }
+
+    @Test
+    void reserveKeepsSupplierAndProductWithinStock() throws IOException {
+        EmbeddedReservationStore store = store(1800);
+        assertTrue(store.reserve(reservation("a", 1L, 10L, 6), 10));
+        assertFalse(store.reserve(reservation("b", 1L, 10L, 5), 10));
+        assertTrue(store.reserve(reservation("b", 2L, 10L, 5), 10));
+        assertTrue(store.reserve(reservation("a", 1L, 10L, 10), 10));
+        assertEquals(10, store.find("a", 1L, 10L).orElseThrow().getQuantity());
+        store.shutdown();
+    }
+
+    @Test
+    void reservedTotalsSumLiveReservationsPerProduct() throws IOException {
+        EmbeddedReservationStore store = store(1800);
+        store.save(reservation("a", 1L, 10L, 2));
+        store.save(reservation("b", 2L, 10L, 3));
+        store.save(reservation("a", 1L, 11L, 4));
+        store.releaseSession("b");
+
+        assertEquals(Map.of(10L, 2L, 11L, 4L), store.reservedTotals());
+        store.shutdown();
+    }
+
+    @Test
+    void releasedCartStaysReleasedAfterRestart() throws IOException {
+        EmbeddedReservationStore store = store(1800);
+        store.save(reservation("a", 1L, 10L, 2));
+        store.save(reservation("a", 2L, 11L, 3));
+        store.save(reservation("b", 1L, 10L, 4));
+        assertEquals(2, store.findBySession("a").size());
+        assertEquals(2, store.releaseSession("a").size());
+        assertTrue(store.findBySession("a").isEmpty());
+        store.shutdown();
+
+        EmbeddedReservationStore restarted = store(1800);
+        assertTrue(restarted.findBySession("a").isEmpty());
+        assertEquals(4, restarted.findBySession("b").get(0).getQuantity());
+        restarted.shutdown();
+    }
+
+    @Test
+    void touchingACartJournalsOneRecord() throws IOException, InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EmbeddedReservationStore store = store(meterRegistry, 1800);
+        store.save(reservation("a", 1L, 10L, 2));
+        store.save(reservation("a", 2L, 11L, 3));
+        store.save(reservation("a", 3L, 12L, 4));
+        double before = meterRegistry.get("inventory.reservation.journal.size").gauge().value();
+
+        Thread.sleep(5);
+        assertEquals(3, store.findBySession("a").size());
+        // header, type, expiry, product, supplier, quantity, session length and "a"
+        assertEquals(8 + 1 + 8 + 8 + 8 + 4 + 2 + 1, meterRegistry.get("inventory.reservation.journal.size").gauge().value() - before);
+        store.shutdown();
+
+        EmbeddedReservationStore restarted = store(1800);
+        assertEquals(3, restarted.findBySession("a").size());
+        restarted.shutdown();
+    }
+
+    private EmbeddedReservationStore store(final long ttlSeconds) throws IOException {
+        return store(new SimpleMeterRegistry(), ttlSeconds);
+    }
+
+    private EmbeddedReservationStore store(final SimpleMeterRegistry meterRegistry, final long ttlSeconds) throws IOException {
+        return new EmbeddedReservationStore(meterRegistry, ttlSeconds,
+                        directory.resolve("reservations.journal").toString(), 1, 64, 1000);
+    }
+
+    private static Reservation reservation(final String sessionId, final Long supplierId, final Long productId, final int quantity) {
+        Reservation reservation = new Reservation();
+        reservation.setSessionId(sessionId);
+        reservation.setSupplierId(supplierId);
+        reservation.setProductId(productId);
+        reservation.setQuantity(quantity);
+        return reservation;
+    }
+}
@@ -0,0 +1,78 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.domain.Reservation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HotProductAdmissionTest {
+
+    @TempDir
+    Path directory;
+
+    private final ProductLoader productLoader = mock(ProductLoader.class);
+
+    private EmbeddedReservationStore store;
+    private HotProductAdmission admission;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new EmbeddedReservationStore(new SimpleMeterRegistry(), 1800, directory.resolve("reservations.journal").toString(), 1, 64, 1000);
+        admission = new HotProductAdmission(store, productLoader, new SimpleMeterRegistry(), true, "10", 0, 30000, 2, 64, 1);
+        when(productLoader.loadFromPrimary(10L)).thenReturn(Optional.of(new Product().id(10L).quantity(100)));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        admission.shutdown();
+        store.shutdown();
+    }
+
+    @Test
+    void configuredProductsAreHot() {
+        assertTrue(admission.isHot(10L));
+        assertFalse(admission.isHot(11L));
+    }
+
+    @Test
+    void concurrentReservationsDoNotOversell() {
+        ExecutorService clients = Executors.newFixedThreadPool(32);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Reservation reservation = reservation("session-" + i);
+            results.add(CompletableFuture.supplyAsync(() -> admission.reserve(reservation), clients));
+        }
+        long admitted = results.stream().filter(CompletableFuture::join).count();
+        clients.shutdown();
+
+        assertEquals(100, admitted);
+        assertEquals(100, store.reservedQuantity(10L));
+    }
+
+    private static Reservation reservation(final String sessionId) {
+        Reservation reservation = new Reservation();
+        reservation.setSessionId(sessionId);
+        reservation.setSupplierId(1L);
+        reservation.setProductId(10L);
+        reservation.setQuantity(1);
+        return reservation;
+    }
+}
@@ -0,0 +1,88 @@
+package com.intergamma.inventory.service;
+
+import com.intergamma.inventory.domain.Product;
+import com.intergamma.inventory.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductLoaderTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private ProductLoader productLoader = new ProductLoader(productRepository, transactionManager, new SimpleMeterRegistry(), 50, 100, 1);
+
+    @AfterEach
+    void shutdown() {
+        productLoader.shutdown();
+    }
+
+    @Test
+    void lookupsDuringAQueryShareOneBatchedQuery() throws InterruptedException {
+        CountDownLatch firstQuery = new CountDownLatch(1);
+        when(productRepository.findAllWithSupplierAndCategoryByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            if (ids.contains(1L)) {
+                firstQuery.await();
+            }
+            return ids.stream().filter(id -> id != 3L).map(id -> new Product().id(id)).collect(Collectors.toList());
+        });
+
+        List<CompletableFuture<Optional<Product>>> lookups = List.of(
+                        productLoader.loadAsync(1L),
+                        productLoader.loadAsync(1L),
+                        productLoader.loadAsync(2L),
+                        productLoader.loadAsync(3L));
+        firstQuery.countDown();
+
+        assertEquals(1L, lookups.get(0).join().orElseThrow().getId());
+        assertEquals(1L, lookups.get(1).join().orElseThrow().getId());
+        assertEquals(2L, lookups.get(2).join().orElseThrow().getId());
+        assertFalse(lookups.get(3).join().isPresent());
+        verify(productRepository, times(1)).findAllWithSupplierAndCategoryByIdIn(List.of(1L));
+        verify(productRepository, times(1)).findAllWithSupplierAndCategoryByIdIn(List.of(2L, 3L));
+    }
+
+    @Test
+    void uncontendedLookupDoesNotWaitForTheBatchWindow() {
+        productLoader.shutdown();
+        productLoader = new ProductLoader(productRepository, transactionManager, new SimpleMeterRegistry(), 60_000, 100, 1);
+        when(productRepository.findAllWithSupplierAndCategoryByIdIn(List.of(1L))).thenReturn(List.of(new Product().id(1L)));
+
+        Optional<Product> product = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> productLoader.load(1L));
+
+        assertEquals(1L, product.orElseThrow().getId());
+        // joins the transaction of the caller instead of taking a second connection
+        verify(transactionManager).getTransaction(argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_SUPPORTS));
+    }
+
+    @Test
+    void admissionLookupReadsThePrimary() {
+        when(productRepository.findAllWithSupplierAndCategoryByIdIn(List.of(1L))).thenReturn(List.of(new Product().id(1L).quantity(5)));
+
+        assertEquals(5, productLoader.loadFromPrimary(1L).orElseThrow().getQuantity());
+        verify(transactionManager).getTransaction(argThat(definition -> !definition.isReadOnly()));
+    }
+}